@@ -5,6 +5,7 @@ package games.chess;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Map;
 import java.util.PriorityQueue;
@@ -16,7 +17,12 @@ import javax.swing.text.Position;
 import joueur.BaseAI;
 
 // <<-- Creer-Merge: imports -->> - Code you add between this comment and the end comment will be preserved between Creer re-runs.
-import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 // <<-- /Creer-Merge: imports -->>
 
 /**
@@ -44,6 +50,24 @@ public class AI extends BaseAI {
     
     final static float C_CASTLING_VALUE = 1.5f;
 
+    /*  kept between turns so each search starts from what earlier ones learned */
+    TranspositionTable m_table;
+    int m_threads = 1;
+    boolean m_youngBrothersWait = false;
+
+    /*  the engine follows the game from turn to turn, keeping its killers, history and
+        principal variation. m_engineHistory counts the game moves it has played   */
+    volatile ChessState m_engine;
+    int m_engineHistory = 0;
+
+    /*  pondering: after moving, the position after the opponent's expected reply is searched
+        on a background thread until the opponent moves   */
+    boolean m_ponder = false;
+    ExecutorService m_ponderExecutor;
+    volatile ChessState m_ponderState;
+    Future<Integer> m_ponderSearch;
+    String m_ponderMove;
+
     /*  pawns are more valuable in the center in early game. When there
         are less than 14 pieces on the board (late-game), pawns on the
         edges become more valuable. */
@@ -97,9 +121,6 @@ public class AI extends BaseAI {
         {1.00f, 1.20f, 1.00f, 1.00f, 1.00f, 1.00f, 1.20f, 1.00f},
         {1.00f, 1.00f, 1.00f, 1.00f, 1.00f, 1.00f, 1.00f, 1.00f}};
 
-    final static char [] promotionChars = {'q', 'r', 'b', 'n'};
-    final static HashSet<String> castleMoves = new HashSet<String>(Arrays.asList("e1c1", "e1g1", "e8c8", "e8g8"));
-
     final static String [][] whiteOpenings = {
         {"e2e4", "e7e5", "g1f3", "b8c6", "f1c4", "f8c5", "d2d3"},                                           // italian game
         {"e2e4", "c7c5", "d2d4", "c5d4", "c2c3", "d4c3", "b1c3"},                                           // smith-morra gambit
@@ -166,6 +187,21 @@ public class AI extends BaseAI {
     public void start() {
         // <<-- Creer-Merge: start -->> - Code you add between this comment and the end comment will be preserved between Creer re-runs.
         super.start();
+
+        // the transposition table size in MB can be set with --aiSettings hash=<MB>
+        m_table = new TranspositionTable(positiveSetting("hash", TranspositionTable.C_DEFAULT_MB));
+
+        // the number of search threads can be set with --aiSettings threads=<count>
+        m_threads = positiveSetting("threads", 1);
+
+        // the threads split the search with Young Brothers Wait given --aiSettings parallel=ybwc
+        m_youngBrothersWait = "ybwc".equals(getSetting("parallel"));
+
+        // searching on the opponent's time is turned on with --aiSettings ponder=true
+        m_ponder = "true".equals(getSetting("ponder"));
+        if (m_ponder) {
+            m_ponderExecutor = Executors.newSingleThreadExecutor();
+        }
         // <<-- /Creer-Merge: start -->>
     }
 
@@ -188,9 +224,37 @@ public class AI extends BaseAI {
     public void ended(boolean won, String reason) {
         // <<-- Creer-Merge: ended -->> - Code you add between this comment and the end comment will be preserved between Creer re-runs.
         super.ended(won, reason);
+        finishPondering(false, 0, 0);
+        if (m_ponderExecutor != null) {
+            m_ponderExecutor.shutdownNow();
+        }
         // <<-- /Creer-Merge: ended -->>
     }
 
+    /**
+     * Called from the client's thread when the game ends or the move takes longer than the time left, so the search returns its best move so far.
+     * On a ponder hit makeMove waits on the pondering search, which is not the engine yet, so both are stopped.
+     */
+    public void cancelOrder() {
+        ChessState engine = m_engine;
+        if (engine != null) {
+            engine.stop();
+        }
+        ChessState ponderState = m_ponderState;
+        if (ponderState != null) {
+            ponderState.stop();
+        }
+    }
+
+    /**
+     * The search may run until the player's clock runs out.
+     *
+     * @return The time remaining, in nanoseconds
+     */
+    public double orderTimeLimit() {
+        return player.timeRemaining;
+    }
+
 
     /**
      * This is called every time it is this AI.player's turn to make a move.
@@ -239,30 +303,54 @@ public class AI extends BaseAI {
             }
         }        
 
-        // creating the current ChessState given the parsed board, computing
-        // possible moves for 'color', and then determining which are still valid
-        ChessState currentState = new ChessState(chessBoard, turnColor);
-        currentState.computeMoves(castling, enPassant);
+        // a ponder hit goes on searching from what it found on the opponent's time
+        String reply = (game.history.isEmpty() ? null : game.history.get(game.history.size()-1));
+        boolean ponderHit = (m_ponderMove != null && m_ponderMove.equals(reply));
+        ChessState ponderState = m_ponderState;
+        int move = finishPondering(ponderHit, player.timeRemaining, turnNumber);
+        m_ponderState = null;
+
+        // the pondering ChessState is already at this position, so it carries on as the engine
+        if (ponderHit) {
+            m_engine = ponderState;
+            m_engineHistory = game.history.size();
+        }
+
+        // bringing the engine to the current position, then computing its valid moves
+        ChessState currentState = syncEngine(chessBoard, turnColor, castling, enPassant);
+        currentState.computeMoves();
 
-        // getting the list moves
-        ArrayList<MovePair> validMoves = currentState.getMoves();
+        // getting the list moves in UCI notation
+        MoveList moves = currentState.getMoves();
+        ArrayList<String> validMoves = new ArrayList<String>();
+        for (int i = 0; i < moves.size(); i++) {
+            validMoves.add(Move.toUci(moves.get(i)));
+        }
 
         // outputting the number of moves, the list of moves, and which move was taken
-        validMoves.sort(MovePair.alphabeticalComparator);
+        Collections.sort(validMoves);
         System.out.println(validMoves.size());
         for (int i = 0; i < validMoves.size(); i++) {
-            System.out.print(validMoves.get(i).m_move);
+            System.out.print(validMoves.get(i));
             if (i != validMoves.size()-1) {
                 System.out.print(" ");
             }
         }
 
-        // selecting a move and outputting then returning it
-        String chosenMove = currentState.timeLimited_IterativeDeepening_DepthLimited_MiniMax_AlphaBeta(
-            turnNumber, game.history, player.timeRemaining
-        );
+        if (!currentState.isLegal(move)) {
+            move = currentState.timeLimited_IterativeDeepening_DepthLimited_MiniMax_AlphaBeta(
+                turnNumber, game.history, player.timeRemaining
+            );
+        }
+
+        // selecting a move and outputting then returning it, converting to UCI only here
+        String chosenMove = Move.toUci(move);
 
-        System.out.println("\nMy move = " + chosenMove);
+        System.out.println("\nMy move = " + chosenMove + (ponderHit ? " (ponder hit)" : ""));
+
+        if (m_ponder) {
+            startPondering(currentState, move);
+        }
 
         return chosenMove;
         // <<-- /Creer-Merge: makeMove -->>
@@ -270,6 +358,126 @@ public class AI extends BaseAI {
 
 
     // <<-- Creer-Merge: methods -->> - Code you add between this comment and the end comment will be preserved between Creer re-runs.
+
+    /*  desc:   brings the engine to the game's position by playing the moves made since its
+     *          last turn, so its tables and principal variation carry over. It is built from
+     *          the FEN on the first turn, or if it ever disagrees with the game.
+     *  args:   the parsed FEN of the game's position.
+     *  ret:    the engine, at the game's position.
+     */
+    ChessState syncEngine(final char [][] board, final PieceColor turnColor, final String castling,
+            final String enPassant) {
+        for (int i = m_engineHistory; m_engine != null && i < game.history.size(); i++) {
+            m_engine.computeMoves();
+            int move = m_engine.parseMove(game.history.get(i));
+            if (move == Move.C_NONE) {
+                m_engine = null;
+            } else {
+                m_engine.playMove(move);
+            }
+        }
+
+        if (m_engine == null || !m_engine.matchesBoard(board, turnColor, castling)) {
+            if (m_engine != null) {
+                System.out.println("Engine out of step with the game, rebuilding it from the FEN");
+            }
+            m_engine = new ChessState(board, turnColor, castling, enPassant);
+            m_engine.setTranspositionTable(m_table);
+            m_engine.setThreads(m_threads);
+            m_engine.setYoungBrothersWait(m_youngBrothersWait);
+        }
+        m_engineHistory = game.history.size();
+        return m_engine;
+    }
+
+    /*  desc:   starts searching the position after our move and the opponent's expected
+     *          reply, taken from the principal variation of the search that chose our move.
+     *  args:   state - the position before our move, which searched it, move - our packed move.
+     *  ret:    n/a.
+     */
+    void startPondering(final ChessState state, final int move) {
+        int reply = state.getPonderMove(move);
+        ChessState afterMove = new ChessState(state);
+        afterMove.makeMove(move);
+        if (!afterMove.isLegal(reply)) {
+            return;
+        }
+        afterMove.makeMove(reply);
+
+        final List<String> history = new ArrayList<String>(game.history);
+        history.add(Move.toUci(move));
+        history.add(Move.toUci(reply));
+
+        // a fresh copy, so the search starts with an empty undo stack
+        final ChessState ponderState = new ChessState(afterMove);
+        ponderState.setTranspositionTable(m_table);
+        ponderState.setThreads(m_threads);
+        ponderState.setYoungBrothersWait(m_youngBrothersWait);
+        ponderState.preparePonder();
+
+        m_ponderState = ponderState;
+        m_ponderMove = Move.toUci(reply);
+        m_ponderSearch = m_ponderExecutor.submit(new Callable<Integer>() {
+            public Integer call() {
+                return ponderState.ponder(history);
+            }
+        });
+    }
+
+    /*  desc:   reads a whole number setting from --aiSettings, warning about and replacing one
+     *          that is not a number or is below 1, so a typo cannot keep the AI from playing.
+     *  args:   name - the setting, fallback - the value used when it is not set or not a number.
+     *  ret:    the setting's value, at least 1.
+     */
+    int positiveSetting(final String name, final int fallback) {
+        String setting = getSetting(name);
+        if (setting == null || setting.isEmpty()) {
+            return fallback;
+        }
+
+        try {
+            int value = Integer.parseInt(setting.trim());
+            if (value < 1) {
+                System.err.println("Setting " + name + "=" + setting + " is below 1, using 1");
+                return 1;
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            System.err.println("Setting " + name + "=" + setting + " is not a number, using " + fallback);
+            return fallback;
+        }
+    }
+
+    /*  desc:   ends pondering, if it is running. On a ponder hit the search goes on with a
+     *          time limit and its move is waited for, otherwise it is stopped and its
+     *          transposition table entries are all that is kept.
+     *  args:   hit - whether the opponent played the expected reply, with the player's time
+     *          remaining in nanoseconds and the turn number for the rest of the search.
+     *  ret:    the ponder search's packed move on a hit, otherwise Move.C_NONE.
+     */
+    int finishPondering(final boolean hit, final double timeRemaining, final int turnNumber) {
+        if (m_ponderSearch == null) {
+            return Move.C_NONE;
+        }
+
+        if (hit) {
+            m_ponderState.ponderHit(timeRemaining, turnNumber);
+        } else {
+            m_ponderState.stop();
+        }
+
+        int move = Move.C_NONE;
+        try {
+            move = m_ponderSearch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println("Pondering failed: " + e.getCause());
+        }
+        m_ponderSearch = null;
+        m_ponderMove = null;
+        return (hit ? move : Move.C_NONE);
+    }
     
     public boolean isEmpty(char c) {
         return c != 'P' && c != 'p'
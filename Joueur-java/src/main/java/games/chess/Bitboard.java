@@ -0,0 +1,313 @@
+/**
+ * @author  Jonah Yates
+ * @file    Bitboard.java
+ * @brief   contains the square indexing, precomputed attack masks and the
+ *          bit helpers used by the bitboard representation in ChessState.
+ */
+
+package games.chess;
+
+public final class Bitboard {
+
+    /*  squares are indexed a1 = 0, b1 = 1, ..., h1 = 7, a2 = 8, ..., h8 = 63.
+        m_board rows from the old char[8][8] layout start at rank 8, so
+        row 0 col 0 is square 56 (a8) and row 7 col 7 is square 7 (h1).   */
+    final static long C_FILE_A = 0x0101010101010101L;
+    final static long C_FILE_H = C_FILE_A << 7;
+    final static long C_RANK_1 = 0xFFL;
+    final static long C_RANK_3 = C_RANK_1 << 16;
+    final static long C_RANK_6 = C_RANK_1 << 40;
+    final static long C_RANK_8 = C_RANK_1 << 56;
+
+    /*  leaper attack sets indexed by square, pawn attacks by [color][square] */
+    final static long [] C_KNIGHT_ATTACKS = new long[64];
+    final static long [] C_KING_ATTACKS = new long[64];
+    final static long [][] C_PAWN_ATTACKS = new long[2][64];
+
+    /*  slider rays indexed by [direction][square], directions follow the
+        order of AI.rookDir and AI.bishopDir.                               */
+    final static long [][] C_ROOK_RAYS = new long[4][64];
+    final static long [][] C_BISHOP_RAYS = new long[4][64];
+    final static boolean [] C_ROOK_RAY_POSITIVE = new boolean[4];
+    final static boolean [] C_BISHOP_RAY_POSITIVE = new boolean[4];
+
+    /*  fancy magic bitboards. A slider's relevant blockers (its rays minus
+        the board edge) are multiplied by the square's magic and shifted so
+        the high bits index that square's slice of the shared attack table.
+        The magics below were found offline with a sparse random search and
+        map every blocker subset without destructive collisions.           */
+    final static long [] C_ROOK_MASKS = new long[64];
+    final static long [] C_BISHOP_MASKS = new long[64];
+    final static long [] C_ROOK_MAGICS = {
+        0x008000908064C000L, 0x0040200040001000L, 0x0180100080A0010AL, 0x8880041000800800L,
+        0x1200100201200804L, 0x0200020004011008L, 0x2180010000800600L, 0x0200005088210204L,
+        0x0000800080204001L, 0x1000804000802001L, 0x8240801000200080L, 0x8611001004200900L,
+        0x008180800C001800L, 0x0100800200800400L, 0x0A02000102000408L, 0x8020802300104280L,
+        0x0080004000402000L, 0xE010104000402000L, 0x0800808010002000L, 0xA280210008100100L,
+        0x0001818014000800L, 0xA002010100080400L, 0x0008040088020130L, 0x0001020004048845L,
+        0x0081826280004004L, 0x2020810900284000L, 0x0200100080802000L, 0x0200080080100080L,
+        0x8083080100100500L, 0x4406000901000400L, 0x0005020080800100L, 0x0090204200008114L,
+        0x0010400094800420L, 0x0900804000802002L, 0x0201001841002000L, 0x4100080080801000L,
+        0x4540040080800800L, 0x0000800400800200L, 0x9281800100808200L, 0x8004048102000854L,
+        0x4420802040008006L, 0x0880500020004002L, 0x0801200241050010L, 0x8400080010008080L,
+        0x0008000500090010L, 0x0082009084020008L, 0x4012000108020004L, 0x9000104D08860004L,
+        0x2004204114800100L, 0x0148802112400300L, 0x0202842000100880L, 0x001B080080900080L,
+        0x001A002008100600L, 0x0004008004020080L, 0x5181000600040300L, 0x0000044401128A00L,
+        0x8044110480002441L, 0x1023012082044112L, 0x00804080200A0012L, 0x000420310A004A42L,
+        0x0023001004020801L, 0x0882001008040102L, 0x000230088118020CL, 0x0000019025040042L
+    };
+    final static long [] C_BISHOP_MAGICS = {
+        0x1010220204082A00L, 0x80E0020202002804L, 0x2008480104200020L, 0x000220920280002DL,
+        0x32040421000B0284L, 0x1002080404000400L, 0x0004160892080040L, 0x2203024206204201L,
+        0x0002404264010200L, 0x1120908408428124L, 0xB100424403002280L, 0x240008060440C288L,
+        0x2040040420490400L, 0x0100620210040022L, 0x0400084104202028L, 0x0010050080908820L,
+        0x0C90A04490824802L, 0x000200A008210130L, 0x0C08001000204010L, 0x0008000186014480L,
+        0x0601044820080021L, 0x0002000101013100L, 0x1400A08108080204L, 0x0250401104485410L,
+        0x4820240810142843L, 0x0009142A20182200L, 0x0848140048440020L, 0x2020120000400440L,
+        0x0108840200802003L, 0x0009070082009492L, 0x020C0C0038424245L, 0xCA44005808210410L,
+        0x8011212000500404L, 0x2028840510101008L, 0x0004042A00041400L, 0x0624020080980080L,
+        0x1820410040840040L, 0x2201004202050100L, 0x402A088A24040224L, 0x0242061040002400L,
+        0x90020202400821A0L, 0x00C9009004E01002L, 0x58C2060202023100L, 0x0000012214040800L,
+        0x0210846810100200L, 0x0004208081010200L, 0x01A4108404442100L, 0x8054082C80280106L,
+        0x0004144904104208L, 0x00324C0A11104000L, 0x1000020231040100L, 0x2080001042020004L,
+        0x0544021020288104L, 0x1103501408083020L, 0x4010451004960002L, 0x003010091C44902CL,
+        0x0102402884202000L, 0x0480804C00841086L, 0x04602C8602210400L, 0x0000004000420200L,
+        0x0040000020442C18L, 0x4483804089094100L, 0x80000B0248020400L, 0x0045010808008680L
+    };
+    final static int [] C_ROOK_SHIFTS = new int[64];
+    final static int [] C_BISHOP_SHIFTS = new int[64];
+    final static int [] C_ROOK_OFFSETS = new int[64];
+    final static int [] C_BISHOP_OFFSETS = new int[64];
+    final static long [] C_ROOK_TABLE = new long[102400];
+    final static long [] C_BISHOP_TABLE = new long[5248];
+
+    /*  for two squares sharing a rank, file or diagonal, C_BETWEEN holds the
+        squares strictly between them and C_LINE the whole line through both.
+        Both are 0 for squares that are not aligned.                        */
+    final static long [][] C_BETWEEN = new long[64][64];
+    final static long [][] C_LINE = new long[64][64];
+
+    static {
+        for (int sq = 0; sq < 64; sq++) {
+            C_KNIGHT_ATTACKS[sq] = leaperAttacks(sq, AI.knightDir);
+            C_KING_ATTACKS[sq] = leaperAttacks(sq, AI.kingDir);
+
+            long bit = 1L << sq;
+            C_PAWN_ATTACKS[ChessState.C_WHITE][sq] = ((bit & ~C_FILE_A) << 7) | ((bit & ~C_FILE_H) << 9);
+            C_PAWN_ATTACKS[ChessState.C_BLACK][sq] = ((bit & ~C_FILE_H) >>> 7) | ((bit & ~C_FILE_A) >>> 9);
+
+            for (int dir = 0; dir < 4; dir++) {
+                C_ROOK_RAYS[dir][sq] = ray(sq, AI.rookDir[dir]);
+                C_BISHOP_RAYS[dir][sq] = ray(sq, AI.bishopDir[dir]);
+            }
+        }
+        for (int dir = 0; dir < 4; dir++) {
+            C_ROOK_RAY_POSITIVE[dir] = squareDelta(AI.rookDir[dir]) > 0;
+            C_BISHOP_RAY_POSITIVE[dir] = squareDelta(AI.bishopDir[dir]) > 0;
+        }
+
+        int rookOffset = 0, bishopOffset = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            C_ROOK_MASKS[sq] = relevantBlockers(C_ROOK_RAYS, C_ROOK_RAY_POSITIVE, sq);
+            C_ROOK_SHIFTS[sq] = 64 - popcount(C_ROOK_MASKS[sq]);
+            C_ROOK_OFFSETS[sq] = rookOffset;
+            fillMagicTable(sq, true, C_ROOK_MASKS[sq], C_ROOK_MAGICS[sq], C_ROOK_SHIFTS[sq], C_ROOK_TABLE, rookOffset);
+            rookOffset += 1 << popcount(C_ROOK_MASKS[sq]);
+
+            C_BISHOP_MASKS[sq] = relevantBlockers(C_BISHOP_RAYS, C_BISHOP_RAY_POSITIVE, sq);
+            C_BISHOP_SHIFTS[sq] = 64 - popcount(C_BISHOP_MASKS[sq]);
+            C_BISHOP_OFFSETS[sq] = bishopOffset;
+            fillMagicTable(sq, false, C_BISHOP_MASKS[sq], C_BISHOP_MAGICS[sq], C_BISHOP_SHIFTS[sq], C_BISHOP_TABLE, bishopOffset);
+            bishopOffset += 1 << popcount(C_BISHOP_MASKS[sq]);
+        }
+
+        for (int a = 0; a < 64; a++) {
+            for (int b = 0; b < 64; b++) {
+                long ends = (1L << a) | (1L << b);
+                if (a != b && (rookAttacks(a, 0) & (1L << b)) != 0) {
+                    C_LINE[a][b] = (rookAttacks(a, 0) & rookAttacks(b, 0)) | ends;
+                    C_BETWEEN[a][b] = rookAttacks(a, 1L << b) & rookAttacks(b, 1L << a);
+                } else if (a != b && (bishopAttacks(a, 0) & (1L << b)) != 0) {
+                    C_LINE[a][b] = (bishopAttacks(a, 0) & bishopAttacks(b, 0)) | ends;
+                    C_BETWEEN[a][b] = bishopAttacks(a, 1L << b) & bishopAttacks(b, 1L << a);
+                }
+            }
+        }
+    }
+
+    private Bitboard() {}
+
+    /*  desc:   computes the squares reachable from sq by a single step in each direction.
+     *  ret:    a bitboard of the reachable squares.
+     */
+    private static long leaperAttacks(final int sq, final Pair [] dirs) {
+        long attacks = 0;
+        for (Pair c : dirs) {
+            int newRow = rowOf(sq) + c.m_row;
+            int newCol = colOf(sq) + c.m_col;
+            if (newCol >= 0 && newCol < 8 && newRow >= 0 && newRow < 8) {
+                attacks |= 1L << square(newRow, newCol);
+            }
+        }
+        return attacks;
+    }
+
+    /*  desc:   computes every square from sq to the board edge in direction c on an empty board.
+     *  ret:    a bitboard of the ray, excluding sq itself.
+     */
+    private static long ray(final int sq, final Pair c) {
+        long attacks = 0;
+        for (int range = 1; range <= 7; range++) {
+            int newRow = rowOf(sq) + c.m_row*range;
+            int newCol = colOf(sq) + c.m_col*range;
+            if (newCol < 0 || newCol >= 8 || newRow < 0 || newRow >= 8) {
+                break;
+            }
+            attacks |= 1L << square(newRow, newCol);
+        }
+        return attacks;
+    }
+
+    /*  desc:   converts a row/col direction into a change in square index.
+     *  ret:    the signed square delta of one step in direction c.
+     */
+    private static int squareDelta(final Pair c) {
+        return -8*c.m_row + c.m_col;
+    }
+
+    /*  desc:   computes the sliding attacks along one ray, stopping at the first blocker.
+     *  ret:    a bitboard of attacked squares, including the blocker.
+     */
+    private static long rayAttacks(final long [] rays, final boolean positive, final int sq, final long occupied) {
+        long attacks = rays[sq];
+        long blockers = attacks & occupied;
+        if (blockers != 0) {
+            attacks ^= rays[positive ? lsb(blockers) : msb(blockers)];
+        }
+        return attacks;
+    }
+
+    /*  desc:   computes rook attacks from sq by walking each ray, used to fill the magic tables.
+     *  ret:    a bitboard of attacked squares.
+     */
+    private static long slowRookAttacks(final int sq, final long occupied) {
+        return rayAttacks(C_ROOK_RAYS[0], C_ROOK_RAY_POSITIVE[0], sq, occupied)
+            | rayAttacks(C_ROOK_RAYS[1], C_ROOK_RAY_POSITIVE[1], sq, occupied)
+            | rayAttacks(C_ROOK_RAYS[2], C_ROOK_RAY_POSITIVE[2], sq, occupied)
+            | rayAttacks(C_ROOK_RAYS[3], C_ROOK_RAY_POSITIVE[3], sq, occupied);
+    }
+
+    /*  desc:   computes bishop attacks from sq by walking each ray, used to fill the magic tables.
+     *  ret:    a bitboard of attacked squares.
+     */
+    private static long slowBishopAttacks(final int sq, final long occupied) {
+        return rayAttacks(C_BISHOP_RAYS[0], C_BISHOP_RAY_POSITIVE[0], sq, occupied)
+            | rayAttacks(C_BISHOP_RAYS[1], C_BISHOP_RAY_POSITIVE[1], sq, occupied)
+            | rayAttacks(C_BISHOP_RAYS[2], C_BISHOP_RAY_POSITIVE[2], sq, occupied)
+            | rayAttacks(C_BISHOP_RAYS[3], C_BISHOP_RAY_POSITIVE[3], sq, occupied);
+    }
+
+    /*  desc:   computes the squares whose occupancy can change a slider's attacks from sq,
+     *          which is every ray square except the last one before the board edge.
+     *  ret:    a bitboard of the relevant blocker squares.
+     */
+    private static long relevantBlockers(final long [][] rays, final boolean [] positive, final int sq) {
+        long mask = 0;
+        for (int dir = 0; dir < 4; dir++) {
+            long ray = rays[dir][sq];
+            if (ray != 0) {
+                mask |= ray & ~(1L << (positive[dir] ? msb(ray) : lsb(ray)));
+            }
+        }
+        return mask;
+    }
+
+    /*  desc:   fills a square's slice of the attack table with the attacks for every
+     *          subset of its blocker mask, walking the subsets with the carry-rippler trick.
+     *  args:   sq (int) - the square, rook (boolean) - rook or bishop attacks,
+     *          mask/magic/shift - the square's magic lookup parameters,
+     *          table/offset - the shared attack table and the square's first slot.
+     *  ret:    n/a.
+     */
+    private static void fillMagicTable(final int sq, final boolean rook, final long mask, final long magic,
+        final int shift, final long [] table, final int offset)
+    {
+        long subset = 0;
+        do {
+            int index = (int)((subset * magic) >>> shift);
+            table[offset + index] = rook ? slowRookAttacks(sq, subset) : slowBishopAttacks(sq, subset);
+            subset = (subset - mask) & mask;
+        } while (subset != 0);
+    }
+
+    /*  desc:   looks up rook attacks from sq given the board's occupancy.
+     *  ret:    a bitboard of attacked squares.
+     */
+    static long rookAttacks(final int sq, final long occupied) {
+        return C_ROOK_TABLE[C_ROOK_OFFSETS[sq] + (int)(((occupied & C_ROOK_MASKS[sq]) * C_ROOK_MAGICS[sq]) >>> C_ROOK_SHIFTS[sq])];
+    }
+
+    /*  desc:   looks up bishop attacks from sq given the board's occupancy.
+     *  ret:    a bitboard of attacked squares.
+     */
+    static long bishopAttacks(final int sq, final long occupied) {
+        return C_BISHOP_TABLE[C_BISHOP_OFFSETS[sq] + (int)(((occupied & C_BISHOP_MASKS[sq]) * C_BISHOP_MAGICS[sq]) >>> C_BISHOP_SHIFTS[sq])];
+    }
+
+    /*  desc:   computes queen attacks from sq given the board's occupancy.
+     *  ret:    a bitboard of attacked squares.
+     */
+    static long queenAttacks(final int sq, final long occupied) {
+        return rookAttacks(sq, occupied) | bishopAttacks(sq, occupied);
+    }
+
+    /*  desc:   index of the least significant set bit.
+     *  ret:    a square in [0, 63], or 64 for an empty bitboard.
+     */
+    static int lsb(final long bb) {
+        return Long.numberOfTrailingZeros(bb);
+    }
+
+    /*  desc:   index of the most significant set bit.
+     *  ret:    a square in [0, 63], or -1 for an empty bitboard.
+     */
+    static int msb(final long bb) {
+        return 63 - Long.numberOfLeadingZeros(bb);
+    }
+
+    /*  desc:   counts the set bits of a bitboard.
+     *  ret:    the number of squares in bb.
+     */
+    static int popcount(final long bb) {
+        return Long.bitCount(bb);
+    }
+
+    /*  desc:   converts a char[8][8] row and column into a square index.
+     *  ret:    the square index.
+     */
+    static int square(final int row, final int col) {
+        return (7-row)*8 + col;
+    }
+
+    static int rowOf(final int sq) {
+        return 7 - (sq >>> 3);
+    }
+
+    static int colOf(final int sq) {
+        return sq & 7;
+    }
+
+    /*  desc:   converts a square index to UCI notation.
+     *  ret:    a String such as "e4".
+     */
+    static String squareAsString(final int sq) {
+        return "" + (char)('a' + colOf(sq)) + (char)('1' + (sq >>> 3));
+    }
+
+    /*  desc:   converts the UCI square starting at offset in s to a square index.
+     *  ret:    the square index.
+     */
+    static int stringAsSquare(final String s, final int offset) {
+        return (s.charAt(offset+1) - '1')*8 + (s.charAt(offset) - 'a');
+    }
+}
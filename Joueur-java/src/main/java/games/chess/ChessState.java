@@ -1,1069 +1,2247 @@
-/**
- * @author  Jonah Yates
- * @file    ChessState.java
- * @brief   contains information about a given ChessState.
- */
-
-package games.chess;
-
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Random;
-import java.time.Instant;
-
-public class ChessState {
-
-    /*  piece lookup tables */
-    HashSet<Character> whitePieces = new HashSet<Character>();
-    HashSet<Character> blackPieces = new HashSet<Character>();
-
-    /*  ChessState member variables */
-    private char [][] m_board;
-    private PieceColor m_currentTurnColor;
-    private ArrayList<MovePair> m_moves = new ArrayList<MovePair>();
-
-    public ChessState(final char [][] board, final PieceColor currColor) {
-        m_board = board;
-        m_currentTurnColor = currColor;
-        
-        if (!whitePieces.contains('P')) {
-            whitePieces.add('P');
-            whitePieces.add('R');
-            whitePieces.add('N');
-            whitePieces.add('B');
-            whitePieces.add('Q');
-            whitePieces.add('K');
-
-            blackPieces.add('p');
-            blackPieces.add('r');
-            blackPieces.add('n');
-            blackPieces.add('b');
-            blackPieces.add('q');
-            blackPieces.add('k');
-        }
-    }
-
-
-    /*  desc:   determines a new state based on the passed uciMove.
-     *   ret:   a board after uciMove is applied.
-     */
-    public ChessState transitionFunction(final String uciMove) {
-        char [][] tempBoard = new char[8][8];
-        int [] unpackedMove = unpackMoveAsString(uciMove);
-
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                tempBoard[row][col] = m_board[row][col];
-            }
-        }
-
-        if (!AI.castleMoves.contains(uciMove)) {
-            if (uciMove.length() == 4) {
-                tempBoard[unpackedMove[2]][unpackedMove[3]] = tempBoard[unpackedMove[0]][unpackedMove[1]];
-            } else {
-                tempBoard[unpackedMove[2]][unpackedMove[3]] = uciMove.charAt(4);
-            }
-            tempBoard[unpackedMove[0]][unpackedMove[1]] = '.';
-        } else {
-            switch (uciMove) {
-                case "e1c1":
-                    tempBoard[7][2] = 'K';
-                    tempBoard[7][3] = 'R';
-                    break;
-                case "e1g1":
-                    tempBoard[7][6] = 'K';
-                    tempBoard[7][5] = 'R';
-                    break;
-                case "e8c8":
-                    tempBoard[0][2] = 'k';
-                    tempBoard[0][3] = 'r';
-                    break;
-                case "e8g8":
-                    tempBoard[0][6] = 'k';
-                    tempBoard[0][5] = 'r';
-                    break;
-            }
-        }
-        
-        return new ChessState(tempBoard, m_currentTurnColor);
-    }
-
-    /*  desc:   gets the calling ChessState's list of moves (m_moves).
-     *   ret:   the m_moves ArrayList<MovePair>.
-     */
-    public ArrayList<MovePair> getMoves() {
-        return m_moves;
-    }
-    
-    /*  desc:   computes and adds possible moves to m_moves given m_currentTurnColor.
-     *  ret:    n/a.
-     */
-    public void computeMoves(final String castling, final String enPassant) {
-        // getting the moves from all pieces on the board
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                if (m_currentTurnColor == PieceColor.White) {
-                    switch (m_board[row][col]) {
-                        case 'P':   addPawnMoves(row, col);   break;
-                        case 'R':   addRookMoves(row, col);   break;
-                        case 'N':   addKnightMoves(row, col); break;
-                        case 'B':   addBishopMoves(row, col); break;
-                        case 'Q':   addQueenMoves(row, col);  break;
-                        case 'K':   addKingMoves(row, col);   break;
-                    }
-                } else {
-                    switch (m_board[row][col]) {
-                        case 'p':   addPawnMoves(row, col);   break;
-                        case 'r':   addRookMoves(row, col);   break;
-                        case 'n':   addKnightMoves(row, col); break;
-                        case 'b':   addBishopMoves(row, col); break;
-                        case 'q':   addQueenMoves(row, col);  break;
-                        case 'k':   addKingMoves(row, col);   break;
-                    }
-                }
-            }
-        }
-
-        // adding possible castling moves
-        addCastlingMoves(castling);
-
-        // adding possible enPassant moves
-        addEnPassantMoves(enPassant);
-
-        // parsing the m_moves ArrayList so only valid moves remain
-        determineValidMoves();
-    }
-
-    /*  desc:   determines which moves won't put you in check and returns them.
-     *  ret:    an ArrayList<MovePair> of valid moves.
-     */
-    private void determineValidMoves() {
-        ArrayList<MovePair> validMoves = new ArrayList<MovePair>();
-
-        for (MovePair m : m_moves) {
-            ChessState tempState = transitionFunction(m.m_move);
-            int kingRow = -1, kingCol = -1;
-            for (int row = 0; row < 8; row++) {
-                for (int col = 0; col < 8; col++) {
-                    if (tempState.isKing(row, col)) {
-                        kingRow = row;
-                        kingCol = col;
-                    }
-                }
-            }
-            
-            if (!tempState.inCheck(kingRow, kingCol)) {
-                validMoves.add(m);
-            }
-        }
-
-        m_moves = validMoves;
-    }
-
-    /*  desc:   chooses and returns a random move.
-     *  ret:    a random MovePair.m_move from m_moves.
-     */
-    public String randomMove() {
-        Random rand = new Random();
-        return m_moves.get(rand.nextInt(m_moves.size())).m_move;
-    }
-
-    /*  desc:   implements TL-ID-DL-MM with a depth limit determined by the game time, and
-     *          a state evaluation heuristic function using material and positioning advantages.
-     *  args:   the game's turn number, history of moves played, and player's time remaining.
-     *  ret:    the best move the algorithm could determine in the given time.
-     */
-    public String timeLimited_IterativeDeepening_DepthLimited_MiniMax_AlphaBeta(
-        final int turnNumber, final List<String> history, final double timeRemaining)
-    {
-        // shortcutting the decision process for the first couple of moves
-        if (turnNumber <= 10) {  // use a set of good opening moves
-            if (turnNumber == 1 && m_currentTurnColor == PieceColor.White) {        // if white, move e4 (kings pawn) for agressive attack
-                return "e2e4";
-            } else if (turnNumber == 1 && m_currentTurnColor == PieceColor.Black) { // if black's move, lookup and respond to white's move
-                // if white played e4, counter with Silicans defense
-                if ("e2e4".equals(history.get(0))) {
-                    return "c7c5";
-                }
-            } else if (m_currentTurnColor == PieceColor.White) {                    // follow through with the initiative
-                /*  checking if the series of previous moves
-                    matches any openings in whiteOpenings    */
-                for (String [] preset : AI.whiteOpenings) {
-                    boolean match = true;
-                    for (int i = 0; i < 2*(turnNumber-1) && match && 2*(turnNumber-1) < preset.length; i++) {
-                        if (!preset[i].equals(history.get(i))) {
-                            match = false;
-                        }
-                    }
-                    if (match && 2*(turnNumber-1) < preset.length) {
-                        return preset[2*(turnNumber-1)];
-                    }
-                }
-            } else {                                                                // counter and punish white's offensive
-                /*  checking if white's opening 2 moves
-                    resembles scholar's mate and countering  */
-                if (turnNumber == 2
-                    && ("e2e3".equals(history.get(0)) || "e2e4".equals(history.get(0)))
-                    && ("f1c4".equals(history.get(2)) || "d1h5".equals(history.get(2)))) {
-                    return "g7g6";
-                }
-        
-                /*  checking if any of moves in
-                    blackCounters can be played */
-                for (String [] preset : AI.blackCounters) {
-                    boolean match = true;
-                    for (int i = 0; i <= 2*(turnNumber-1) && match && 2*(turnNumber-1)+1 < preset.length; i++) {
-                        if (!preset[i].equals(history.get(i))) {
-                            match = false;
-                        }
-                    }
-                    if (match && 2*(turnNumber-1)+1 < preset.length) {
-                        return preset[2*(turnNumber-1)+1];
-                    }
-                }
-
-            }
-        }
-
-        // start thinking
-        Instant t0 = Instant.now();
-        Instant timeLimit = t0.plusNanos(Double.valueOf(timeRemaining*.022).longValue());
-
-        MovePair best_move = miniMax(
-            1,
-            Float.NEGATIVE_INFINITY,
-            Float.POSITIVE_INFINITY,
-            true,
-            this,
-            null,
-            history);
-
-        for (int depth = 2; true; depth++) {
-            best_move = miniMax(
-                depth,
-                Float.NEGATIVE_INFINITY,
-                Float.POSITIVE_INFINITY,
-                true,
-                this,
-                null,
-                history);
-            Instant t1 = Instant.now();
-            if (t1.isAfter(timeLimit)) {
-                System.out.println("hit depth: " + depth);
-                break;
-            }
-        }
-        
-        return best_move.m_move;
-    }
-
-    /*  desc:   computes the best MovePair using a miniMax time-limited iterative deepening algorithm.
-     *  ret:    returns the best MovePair given the allocated time.
-     */
-    private MovePair miniMax(
-        final int depth,
-        float alpha,
-        float beta,
-        boolean isMaxingPlayer,
-        final ChessState prevState,
-        final String prevMove,
-        final List<String> history) {
-
-        // checking if the search depth is reached or an terminal state hit
-        if (depth == 0 || this.cutoffTest(prevMove, isMaxingPlayer)) {
-            return new MovePair(prevMove, hEval(prevState, prevMove, history));
-        }
-
-        String bestMove = null;
-        float bestValue = isMaxingPlayer ? Float.NEGATIVE_INFINITY : Float.POSITIVE_INFINITY;
-
-        // sorting by heuristic order
-        this.m_moves.sort(MovePair.priorityComparator);
-
-        // looping over possible moves in heuristic order
-        for (MovePair priorityMove : this.m_moves) {
-            ChessState nextState = this.transitionFunction(priorityMove.m_move);
-            nextState.computeMoves("-", "-");
-
-            MovePair computedMove = nextState.miniMax(
-                depth-1,
-                alpha,
-                beta,
-                !isMaxingPlayer,
-                this,
-                priorityMove.m_move,
-                history);
-
-            if (isMaxingPlayer && computedMove.m_value > bestValue) {
-                bestMove = priorityMove.m_move;
-                bestValue = computedMove.m_value;
-                alpha = Math.max(alpha, bestValue);
-            } else if (!isMaxingPlayer && computedMove.m_value < bestValue) {
-                bestMove = priorityMove.m_move;
-                bestValue = computedMove.m_value;
-                beta = Math.min(beta, bestValue);
-            }
-
-            // alpha-beta pruning
-            if (beta <= alpha) {
-                break;
-            }
-        }
-
-        return new MovePair(bestMove, bestValue);
-    }
-
-    /*  desc:   takes the previous ChessState and uci move and returns utility
-     *          associated with making the move and its resulting ChessState.
-     *  args:   prevState (ChessState) - the previous state, prevUCIMove (String) - the UCIMove.
-     *  ret:    the value of the new state as a float.
-     */
-    private float hEval(final ChessState prevState, final String prevUCIMove, final List<String> history) {
-        float points = 0;
-
-        /*  counting the number of pieces remaining.
-            pawn[0], rook[1], knight[2], bishop[3], queen[4], king[5] */
-        int [] whiteCount = {0, 0, 0, 0, 0, 0};
-        int [] blackCount = {0, 0, 0, 0, 0, 0};
-
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                switch (m_board[row][col]) {
-                    case 'P':   whiteCount[0]++;    break;
-                    case 'p':   blackCount[0]++;    break;              
-                    case 'R':   whiteCount[1]++;    break;
-                    case 'r':   blackCount[1]++;    break;                   
-                    case 'N':   whiteCount[2]++;    break;
-                    case 'n':   blackCount[2]++;    break;                    
-                    case 'B':   whiteCount[3]++;    break;
-                    case 'b':   blackCount[3]++;    break;                    
-                    case 'Q':   whiteCount[4]++;    break;
-                    case 'q':   blackCount[4]++;    break;                    
-                    case 'K':   whiteCount[5]++;    break;
-                    case 'k':   blackCount[5]++;    break;                    
-                }
-            }
-        }
-        int numWhite = 0, numBlack = 0;
-        for (int i : whiteCount) {
-            numWhite += i;
-        }
-        for (int i : blackCount) {
-            numBlack += i;
-        }
-        int piecesRemaining = numWhite + numBlack;
-
-
-        /*  awarding points for capturing an opponent's piece
-         *  and subtracting points if the capture is not worth it */
-        float capturingPointsToAward = 0;
-        int [] unpackedPrevMove = unpackMoveAsString(prevUCIMove);
-        if (m_currentTurnColor == PieceColor.White
-            && Character.isLowerCase(prevState.m_board[unpackedPrevMove[2]][unpackedPrevMove[3]]))
-        {
-            capturingPointsToAward += 
-                charAsPoints(prevState.m_board[unpackedPrevMove[2]][unpackedPrevMove[3]])
-                /charAsPoints(prevState.m_board[unpackedPrevMove[0]][unpackedPrevMove[1]]);
-        
-            // taking away 1/3 the points if the piece is now vulnerable
-            if (this.inCheck(unpackedPrevMove[2], unpackedPrevMove[3])) {
-                capturingPointsToAward *= .66;
-            }
-        } else if (m_currentTurnColor == PieceColor.Black
-            && Character.isUpperCase(prevState.m_board[unpackedPrevMove[2]][unpackedPrevMove[3]]))
-        {
-            capturingPointsToAward += 
-                charAsPoints(prevState.m_board[unpackedPrevMove[2]][unpackedPrevMove[3]])
-                /charAsPoints(prevState.m_board[unpackedPrevMove[0]][unpackedPrevMove[1]]);
-        
-            // taking away 1/3 the points if the piece is now vulnerable
-            if (this.inCheck(unpackedPrevMove[2], unpackedPrevMove[3])) {
-                capturingPointsToAward *= .66;
-            }
-        }
-        points += capturingPointsToAward;
-
-
-        /*  awarding points if you put the enemy king in check/captured
-         *  it by adding points to checkPointsToAward   */
-        float checkPointsToAward = 0;
-        if (m_currentTurnColor == PieceColor.White && blackCount[5] == 0) {
-            checkPointsToAward += 1;
-        } else if (m_currentTurnColor == PieceColor.Black && whiteCount[5] == 0) {
-            checkPointsToAward += 1;
-        }
-        
-        // awarding points based on how many more pieces you have than the other player
-        if (m_currentTurnColor == PieceColor.White) {
-            checkPointsToAward += (float)numWhite/numBlack;
-        } else {
-            checkPointsToAward += (float)numBlack/numWhite;
-        }
-        points += checkPointsToAward;
-
-
-        /*  awarding points based on the states
-         *  mobility (number of moves available)    */
-        float mobilityPointsToAward = getMoves().size() * .025f;
-
-        // subtracting points if the move was made recently
-        ArrayList<String> most_recent = new ArrayList<String>();
-        int k = 0;
-        for (int i = history.size()-1; i >= 0; i--) {
-            most_recent.add(history.get(i));
-            k++;
-            if (k == 6) {
-                break;
-            }
-        }
-        for (String s : most_recent) {
-            if (s.equals(prevUCIMove)) {
-                mobilityPointsToAward -= 1;
-            }
-        }
-        points += mobilityPointsToAward;
-
-
-        /*  awarding points based on the state's turn's material possessed and
-         *  placement. Incrementing materialPoints to award with these points.  */
-        float materialPointsToAward = 0;
-
-        // awarding points if promoting
-        if (prevUCIMove.length() == 5) {
-            materialPointsToAward += charAsPoints(prevUCIMove.charAt(4));
-        }
-        
-        // getting points from material on the board
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                float piecePointsToAward = 0;
-                if (Character.isUpperCase(m_board[row][col]) && m_board[row][col] != 'K') {
-                    piecePointsToAward = charAsPoints(m_board[row][col]);
-                } else if (Character.isLowerCase(m_board[row][col]) && m_board[row][col] != 'k') {
-                    piecePointsToAward = charAsPoints(m_board[row][col]);
-                }
-
-                // applying multipliers to piecePointsToAward
-                if (m_board[row][col] == 'P' && m_currentTurnColor == PieceColor.White) {
-                    // reducing pawn weight for doubled pawns
-                    if (row-1 >= 0 && m_board[row-1][col] == 'P') {
-                        piecePointsToAward -= .25;
-                    }
-
-                    // increasing pawn weight if supported by 2 or 1 pawns
-                    if (row+1 < 8
-                        && ((col-1 >= 0 && m_board[row+1][col-1] == 'P')
-                            && (col+1 < 8 && m_board[row+1][col+1] == 'P'))) {
-                        piecePointsToAward += .25;
-                    } else if (row+1 < 8
-                        && ((col-1 >= 0 && m_board[row+1][col-1] == 'P')
-                            || (col+1 < 8 && m_board[row+1][col+1] == 'P'))) {
-                        piecePointsToAward += .1;
-                    }
-
-                    if (piecesRemaining > 14) {
-                        piecePointsToAward *= AI.C_PAWN_POSITION_WHITE_EARLY[row][col];
-                    } else {
-                        piecePointsToAward *= AI.C_PAWN_POSITION_WHITE_LATE[row][col];
-                    }
-                } else if (m_board[row][col] == 'p' && m_currentTurnColor == PieceColor.Black) {
-                    // reducing pawn weight for doubled pawns
-                    if (row+1 < 8 && m_board[row+1][col] == 'p') {
-                        piecePointsToAward -= .25;
-                    }
-
-                    // increasing pawn weight if supported by 2 or 1 pawns
-                    if (row-1 >= 0
-                        && ((col-1 >= 0 && m_board[row-1][col-1] == 'p')
-                            && (col+1 < 8 && m_board[row-1][col+1] == 'p'))) {
-                        piecePointsToAward += .25;
-                    } else if (row-1 >= 0
-                        && ((col-1 >= 0 && m_board[row-1][col-1] == 'p')
-                            || (col+1 < 8 && m_board[row-1][col+1] == 'p'))) {
-                        piecePointsToAward += .1;
-                    }
-                    
-                    if (piecesRemaining > 14) {
-                        piecePointsToAward *= AI.C_PAWN_POSITION_BLACK_EARLY[row][col];
-                    }  else {
-                        piecePointsToAward *= AI.C_PAWN_POSITION_BLACK_LATE[row][col];
-                    }
-                } else if ((m_board[row][col] == 'B' && m_currentTurnColor == PieceColor.White)
-                    || (m_board[row][col] == 'b' && m_currentTurnColor == PieceColor.Black)) {
-                    piecePointsToAward *= AI.C_BISHOP_POSITION[row][col];
-                } else if (piecesRemaining <= 14
-                    && ((m_board[row][col] == 'R' && m_currentTurnColor == PieceColor.White)
-                        || (m_board[row][col] == 'r' && m_currentTurnColor == PieceColor.Black))) {
-                    // bonus points for late game rooks
-                    piecePointsToAward += .25;
-                } else if (piecesRemaining > 14
-                    && ((m_board[row][col] == 'B' && m_currentTurnColor == PieceColor.White)
-                        || (m_board[row][col] == 'b' && m_currentTurnColor == PieceColor.Black))) {
-                    // bonus points for early game bishops
-                    piecePointsToAward += .25;
-                }
-                materialPointsToAward += piecePointsToAward * .5f;
-            }
-        }
-        // awarding points for bishop pairs in early game
-        if (piecesRemaining > 14
-            && (m_currentTurnColor == PieceColor.White && whiteCount[3] == 2)
-                || (m_currentTurnColor == PieceColor.Black && blackCount[3] == 2)) {
-            materialPointsToAward += .5;
-        }
-
-        // awarding points for rook pairs in late game
-        if (piecesRemaining <= 14
-            && (m_currentTurnColor == PieceColor.White && whiteCount[1] == 2)
-                || (m_currentTurnColor == PieceColor.Black && blackCount[1] == 2)) {
-            materialPointsToAward += .5;
-        }
-        if (m_currentTurnColor == PieceColor.White) {
-            materialPointsToAward = 2*materialPointsToAward/(
-                whiteCount[0] * AI.C_PAWN_WEIGHT +
-                whiteCount[1] * AI.C_ROOK_WEIGHT +
-                whiteCount[2] * AI.C_KNIGHT_WEIGHT +
-                whiteCount[3] * AI.C_BISHOP_WEIGHT +
-                whiteCount[4] * AI.C_QUEEN_WEIGHT);
-        } else {
-            materialPointsToAward = 2*materialPointsToAward/(
-                blackCount[0] * AI.C_PAWN_WEIGHT +
-                blackCount[1] * AI.C_ROOK_WEIGHT +
-                blackCount[2] * AI.C_KNIGHT_WEIGHT +
-                blackCount[3] * AI.C_BISHOP_WEIGHT +
-                blackCount[4] * AI.C_QUEEN_WEIGHT);
-        }
-        points += materialPointsToAward;
-
-        return points;
-    }
-
-    /*  desc:   determines whether a state is quiescent or not, that is, whether no
-                wild captures, checks, or important moves were made.
-        ret:    a boolean informing whether the state is quiet or not.
-     * 
-     */
-    private boolean isQuietState(final String prevMove, final boolean isMaxingPlayer) {
-        if (prevMove == null) { 
-            return false;
-        }
-        int [] unpackedMove = unpackMoveAsString(prevMove);
-        if (m_board[unpackedMove[2]][unpackedMove[3]] != '.') {
-            return false;
-        }
-        
-        char kingChar = (isMaxingPlayer ? 'K' : 'k');
-        int kingRow = -1, kingCol = -1;
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                if (m_board[row][col] == kingChar) {
-                    kingRow = row;
-                    kingCol = col;
-                    break;
-                }
-            }
-        }
-        if (kingRow == -1) {
-            return false;
-        } else {
-            if (this.inCheck(kingRow, kingCol)) {
-                return false;
-            } else {
-                if (this.m_moves.size() == 0) {
-                    return true;
-                }
-            }
-        }
-
-        return true;
-    }
-
-    /*  desc:   determines whether the cutoff is reached for miniMax.
-     *  ret:    true if a terminal state is hit (stalemate or checkmate).
-     */
-    private boolean cutoffTest(final String prevMove, final boolean isMaxingPlayer) {
-        /*  when in stalemate or checkmate, the number of available
-            moves (size of m_moves) will be 0.  */
-        return (this.m_moves.size() == 0 || this.isQuietState(prevMove, isMaxingPlayer));
-    }
-
-    /*  desc:   infroms whether the king is in check for the calling ChessState.
-     *  args:   the pre-determined kingRow and kingCol for faster checking.
-     *  ret:    a boolean informing whether the king is in check.
-     */
-    public boolean inCheck(final int kingRow, final int kingCol) {
-
-        // checking if in check from a pawn
-        if (m_currentTurnColor == PieceColor.White) {
-            if (kingRow-1 >= 0 && kingCol+1 < 8) {
-                if (m_board[kingRow-1][kingCol+1] == 'p') {
-                    return true;
-                }
-            }
-            if (kingRow-1 >= 0 && kingCol-1 >= 0) {
-                if (m_board[kingRow-1][kingCol-1] == 'p') {
-                    return true;
-                }
-            }
-        } else {
-            if (kingRow+1 < 8 && kingCol+1 < 8) {
-                if (m_board[kingRow+1][kingCol+1] == 'P') {
-                    return true;
-                }
-            }
-            if (kingRow+1 < 8 && kingCol-1 >= 0) {
-                if (m_board[kingRow+1][kingCol-1] == 'P') {
-                    return true;
-                }
-            }
-        }
-
-        // checking if in check from a rook or queen
-        for (Pair c : AI.rookDir) {
-            for (int range = 1; range <= 7; range++) {
-                int newKingRow = kingRow + c.m_row*range;
-                int newKingCol = kingCol + c.m_col*range;
-                if (newKingCol >= 0 && newKingCol < 8 && newKingRow >= 0 && newKingRow < 8) {
-                    if (m_currentTurnColor == PieceColor.White) {
-                        if (m_board[newKingRow][newKingCol] == 'r' || m_board[newKingRow][newKingCol] == 'q') {
-                            return true;
-                        } else if (m_board[newKingRow][newKingCol] != '.') {
-                            break;
-                        }
-                    } else {
-                        if (m_board[newKingRow][newKingCol] == 'R' || m_board[newKingRow][newKingCol] == 'Q') {
-                            return true;
-                        } else if (m_board[newKingRow][newKingCol] != '.') {
-                            break;
-                        }
-                    }
-                }
-            }
-        }
-
-        // checking if in check from a bishop or queen
-        for (Pair c : AI.bishopDir) {
-            for (int range = 1; range <= 7; range++) {
-                int newKingRow = kingRow + c.m_row*range;
-                int newKingCol = kingCol + c.m_col*range;
-                if (newKingCol >= 0 && newKingCol < 8 && newKingRow >= 0 && newKingRow < 8) {
-                    if (m_currentTurnColor == PieceColor.White) {
-                        if (m_board[newKingRow][newKingCol] == 'b' || m_board[newKingRow][newKingCol] == 'q') {
-                            return true;
-                        } else if (m_board[newKingRow][newKingCol] != '.') {
-                            break;
-                        }
-                    } else {
-                        if (m_board[newKingRow][newKingCol] == 'B' || m_board[newKingRow][newKingCol] == 'Q') {
-                            return true;
-                        } else if (m_board[newKingRow][newKingCol] != '.') {
-                            break;
-                        }
-                    }
-                }
-            }
-        }
-
-        // checking if in check from a knight
-        for (Pair c : AI.knightDir) {
-            int newKingRow = kingRow + c.m_row;
-            int newKingCol = kingCol + c.m_col;
-            if (newKingCol >= 0 && newKingCol < 8 && newKingRow >= 0 && newKingRow < 8) {
-                if (m_currentTurnColor == PieceColor.White && m_board[newKingRow][newKingCol] == 'n') {
-                    return true;
-                } else if (m_currentTurnColor == PieceColor.Black && m_board[newKingRow][newKingCol] == 'N') {
-                    return true;
-                }
-            }
-        }
-
-        // checking if in check from a king
-        for (Pair c : AI.rookDir) {
-            int newKingRow = kingRow + c.m_row;
-            int newKingCol = kingCol + c.m_col;
-            if (newKingCol >= 0 && newKingCol < 8 && newKingRow >= 0 && newKingRow < 8) {
-                if (m_currentTurnColor == PieceColor.White && m_board[newKingRow][newKingCol] == 'k') {
-                    return true;
-                } else if (m_currentTurnColor == PieceColor.Black && m_board[newKingRow][newKingCol] == 'K') {
-                    return true;
-                }
-            }
-        }
-        for (Pair c : AI.bishopDir) {
-            int newKingRow = kingRow + c.m_row;
-            int newKingCol = kingCol + c.m_col;
-            if (newKingCol >= 0 && newKingCol < 8 && newKingRow >= 0 && newKingRow < 8) {
-                if (m_currentTurnColor == PieceColor.White && m_board[newKingRow][newKingCol] == 'k') {
-                    return true;
-                } else if (m_currentTurnColor == PieceColor.Black && m_board[newKingRow][newKingCol] == 'K') {
-                    return true;
-                }
-            }
-        }
-
-        return false;
-    }
-    
-    /*  desc:   informs whether a tile is a king.
-     *  args:   row (int), col (int) - representing a row and column on m_board.
-     *  ret:    a boolean informing whether the tile is m_currentTurnColor's king.
-     */
-    public boolean isKing(final int row, final int col) {
-        return m_board[row][col] == (m_currentTurnColor == PieceColor.White ? 'K' : 'k');
-    }
-
-    private void addPawnMoves(final int m_row, final int m_col) {
-        if (m_currentTurnColor == PieceColor.White) {
-            // adding possible forward movements
-            if (m_row-1 >= 0
-                && m_board[m_row-1][m_col] == '.')
-            {
-                if (m_row-1 == 0) {
-                    // pawn reached other side, adding each kind of promotion
-                    for (char c : AI.promotionChars) {
-                        m_moves.add(new MovePair(moveAsString(m_row, m_col) + moveAsString(m_row-1, m_col) + c, 0));
-                    }
-                } else {
-                    m_moves.add(new MovePair(moveAsString(m_row, m_col) + moveAsString(m_row-1, m_col), 0));
-                }
-                // adding the 2 tile move if it is the pawn's first move
-                if (m_row == 6
-                    && m_board[m_row-2][m_col] == '.') {
-                        m_moves.add(new MovePair(moveAsString(m_row, m_col) + moveAsString(m_row-2, m_col), 0));
-                }
-            }
-
-            // adding possible diagonal left capture movement
-            if (m_row-1 >= 0 && m_col-1 >= 0
-                && blackPieces.contains(m_board[m_row-1][m_col-1]))
-            {
-                if (m_row-1 == 0) {
-                    // pawn reached other side, adding each kind of promotion
-                    for (char c : AI.promotionChars) {
-                        m_moves.add(new MovePair(moveAsString(m_row, m_col) + moveAsString(m_row-1, m_col-1) + c, 0));
-                    }
-                } else {
-                    m_moves.add(new MovePair(moveAsString(m_row, m_col) + moveAsString(m_row-1, m_col-1), 0));
-                }
-            }
-
-            // adding possible diagonal right capture movement
-            if (m_row-1 >= 0 && m_col+1 < 8
-                && blackPieces.contains(m_board[m_row-1][m_col+1]))
-            {
-                if (m_row-1 == 0) {
-                    // pawn reached other side, adding each kind of promotion
-                    for (char c: AI.promotionChars) {
-                        m_moves.add(new MovePair(moveAsString(m_row, m_col) + moveAsString(m_row-1, m_col+1) + c, 0));
-                    }
-                } else {
-                    m_moves.add(new MovePair(moveAsString(m_row, m_col) + moveAsString(m_row-1, m_col+1), 0));
-                }
-            }
-
-        } else {
-            // adding possible forward movements
-            if (m_row+1 < 8
-                && m_board[m_row+1][m_col] == '.')
-            {
-                if (m_row+1 == 7) {
-                    // pawn reached other side, adding each kind of promotion
-                    for (char c : AI.promotionChars) {
-                        m_moves.add(new MovePair(moveAsString(m_row, m_col) + moveAsString(m_row+1, m_col) + c, 0));
-                    }
-                } else {
-                    m_moves.add(new MovePair(moveAsString(m_row, m_col) + moveAsString(m_row+1, m_col), 0));
-                }
-                // adding the 2 tile move if it is the pawn's first move
-                if (m_row == 1
-                    && m_board[m_row+2][m_col] == '.') {
-                    m_moves.add(new MovePair(moveAsString(m_row, m_col) + moveAsString(m_row+2, m_col), 0));
-                }
-            }
-
-            // adding possible diagonal left capture movement
-            if (m_row+1 < 8 && m_col-1 >= 0
-                && whitePieces.contains(m_board[m_row+1][m_col-1]))
-            {
-                if (m_row+1 == 7) {
-                    // pawn reached other side, adding each kind of promotion
-                    for (char c : AI.promotionChars) {
-                        m_moves.add(new MovePair(moveAsString(m_row, m_col) + moveAsString(m_row+1, m_col-1) + c, 0));
-                    }
-                } else {
-                    m_moves.add(new MovePair(moveAsString(m_row, m_col) + moveAsString(m_row+1, m_col-1), 0));
-                }
-            }
-
-            // adding possible diagonal right capture movement
-            if (m_row+1 < 8 && m_col+1 < 8
-                && whitePieces.contains(m_board[m_row+1][m_col+1]))
-            {
-                if (m_row+1 == 7) {
-                    // pawn reached other side, adding each kind of promotion
-                    for (char c : AI.promotionChars) {
-                        m_moves.add(new MovePair(moveAsString(m_row, m_col) + moveAsString(m_row+1, m_col+1) + c, 0));
-                    }
-                } else {
-                    m_moves.add(new MovePair(moveAsString(m_row, m_col) + moveAsString(m_row+1, m_col+1), 0));
-                }
-            }
-            
-        }
-    }
-
-    private void addRookMoves(final int m_row, final int m_col) {
-        for (Pair c : AI.rookDir) {
-            for (int range = 1; range <= 7; range++) {
-                int newRow = m_row + c.m_row*range;
-                int newCol = m_col + c.m_col*range;
-                if (newCol >= 0 && newCol < 8 && newRow >= 0 && newRow < 8) {
-                    if (m_board[newRow][newCol] == '.') {
-                        m_moves.add(new MovePair(moveAsString(m_row, m_col) + moveAsString(newRow, newCol), 0));
-                    } else if (m_currentTurnColor == PieceColor.White && whitePieces.contains(m_board[newRow][newCol])) {
-                        break;
-                    } else if (m_currentTurnColor == PieceColor.Black && blackPieces.contains(m_board[newRow][newCol])) {
-                        break;
-                    } else if (m_currentTurnColor == PieceColor.White && blackPieces.contains(m_board[newRow][newCol])) {
-                        m_moves.add(new MovePair(moveAsString(m_row, m_col) + moveAsString(newRow, newCol), 0));
-                        break;
-                    } else if (m_currentTurnColor == PieceColor.Black && whitePieces.contains(m_board[newRow][newCol])) {
-                        m_moves.add(new MovePair(moveAsString(m_row, m_col) + moveAsString(newRow, newCol), 0));
-                        break;
-                    }
-                }
-            }
-        }
-    }
-
-    private void addKnightMoves(final int m_row, final int m_col) {
-        for (Pair c : AI.knightDir) {
-            int newRow = m_row + c.m_row;
-            int newCol = m_col + c.m_col;
-            if (newCol >= 0 && newCol < 8 && newRow >= 0 && newRow < 8) {
-                if (m_board[newRow][newCol] == '.') {
-                    m_moves.add(new MovePair(moveAsString(m_row, m_col) + moveAsString(newRow, newCol), 0));
-                } else if (m_currentTurnColor == PieceColor.White && blackPieces.contains(m_board[newRow][newCol])) {
-                    m_moves.add(new MovePair(moveAsString(m_row, m_col) + moveAsString(newRow, newCol), 0));
-                } else if (m_currentTurnColor == PieceColor.Black && whitePieces.contains(m_board[newRow][newCol])) {
-                    m_moves.add(new MovePair(moveAsString(m_row, m_col) + moveAsString(newRow, newCol), 0));
-                }
-            }
-        }
-    }
-
-    private void addBishopMoves(final int m_row, final int m_col) {
-        for (Pair c : AI.bishopDir) {
-            for (int range = 1; range <= 7; range++) {
-                int newRow = m_row + c.m_row*range;
-                int newCol = m_col + c.m_col*range;
-                if (newCol >= 0 && newCol < 8 && newRow >= 0 && newRow < 8) {
-                    if (m_board[newRow][newCol] == '.') {
-                        m_moves.add(new MovePair(moveAsString(m_row, m_col) + moveAsString(newRow, newCol), 0));
-                    } else if (m_currentTurnColor == PieceColor.White && whitePieces.contains(m_board[newRow][newCol])) {
-                        break;
-                    } else if (m_currentTurnColor == PieceColor.Black && blackPieces.contains(m_board[newRow][newCol])) {
-                        break;
-                    } else if (m_currentTurnColor == PieceColor.White && blackPieces.contains(m_board[newRow][newCol])) {
-                        m_moves.add(new MovePair(moveAsString(m_row, m_col) + moveAsString(newRow, newCol), 0));
-                        break;
-                    } else if (m_currentTurnColor == PieceColor.Black && whitePieces.contains(m_board[newRow][newCol])) {
-                        m_moves.add(new MovePair(moveAsString(m_row, m_col) + moveAsString(newRow, newCol), 0));
-                        break;
-                    }
-                }
-            }
-        }
-    }
-
-    private void addQueenMoves(final int m_row, final int m_col) {
-        addRookMoves(m_row, m_col);
-        addBishopMoves(m_row, m_col);
-    }
-
-    private void addKingMoves(final int m_row, final int m_col) {
-        for (Pair c : AI.kingDir) {
-            int newRow = m_row + c.m_row;
-            int newCol = m_col + c.m_col;
-            if (newCol >= 0 && newCol < 8 && newRow >= 0 && newRow < 8) {
-                if (m_board[newRow][newCol] == '.') {
-                    m_moves.add(new MovePair(moveAsString(m_row, m_col) + moveAsString(newRow, newCol), 0));
-                } else if (m_currentTurnColor == PieceColor.White
-                    && blackPieces.contains(m_board[newRow][newCol])
-                    && m_board[newRow][newCol] != 'k') {
-                    m_moves.add(new MovePair(moveAsString(m_row, m_col) + moveAsString(newRow, newCol), 0));
-                } else if (m_currentTurnColor == PieceColor.Black
-                    && whitePieces.contains(m_board[newRow][newCol])
-                    && m_board[newRow][newCol] != 'K') {
-                    m_moves.add(new MovePair(moveAsString(m_row, m_col) + moveAsString(newRow, newCol), 0));
-                }
-            }
-        }
-    }
-
-    private void addCastlingMoves(final String castling) {
-        if (castling.charAt(0) == '-') {
-            return;
-        } else {
-            for (int i = 0; i < castling.length(); i++) {
-                if (m_currentTurnColor == PieceColor.White && m_board[7][4] == 'K') {
-                    if (castling.charAt(i) == 'K'
-                        && m_board[7][5] == '.'
-                        && m_board[7][6] == '.'
-                        && !this.inCheck(7, 4)
-                        && !transitionFunction("e1g1").inCheck(7, 5)
-                        && !transitionFunction("e1g1").inCheck(7,6))
-                    {
-                        m_moves.add(new MovePair("e1g1", AI.C_CASTLING_VALUE));
-                    }
-                    if (castling.charAt(i) == 'Q'
-                        && m_board[7][1] == '.'
-                        && m_board[7][2] == '.'
-                        && m_board[7][3] == '.'
-                        && !this.inCheck(7, 4)
-                        && !transitionFunction("e1c1").inCheck(7, 3)
-                        && !transitionFunction("e1c1").inCheck(7, 2))
-                    {
-                        m_moves.add(new MovePair("e1c1", AI.C_CASTLING_VALUE));
-                    }
-                } else if (m_currentTurnColor == PieceColor.Black && m_board[0][4] == 'k') {
-                    if (castling.charAt(i) == 'k'
-                        && m_board[0][5] == '.'
-                        && m_board[0][6] == '.'
-                        && !this.inCheck(0, 4)
-                        && !transitionFunction("e8g8").inCheck(0, 5)
-                        && !transitionFunction("e8g8").inCheck(0, 6))
-                    {
-                        m_moves.add(new MovePair("e8g8", AI.C_CASTLING_VALUE));
-                    }
-                    if (castling.charAt(i) == 'q'
-                        && m_board[0][1] == '.'
-                        && m_board[0][2] == '.'
-                        && m_board[0][3] == '.'
-                        && !this.inCheck(0, 4)
-                        && !transitionFunction("e8c8").inCheck(0, 3)
-                        && !transitionFunction("e8c8").inCheck(0, 2))
-                    {
-                        m_moves.add(new MovePair("e8c8", AI.C_CASTLING_VALUE));
-                    }
-                }
-            }
-        }
-    }
-
-    private void addEnPassantMoves(final String enPassant) {
-        if (enPassant.charAt(0) == '-') {
-            return;
-        } else {
-            int targetRow = -1, targetCol = -1;
-            targetRow = 8 - Character.getNumericValue(enPassant.charAt(1));
-            switch(enPassant.charAt(0)) {
-                case 'a':   targetCol = 0;    break;
-                case 'b':   targetCol = 1;    break;
-                case 'c':   targetCol = 2;    break;
-                case 'd':   targetCol = 3;    break;
-                case 'e':   targetCol = 4;    break;
-                case 'f':   targetCol = 5;    break;
-                case 'g':   targetCol = 6;    break;
-                case 'h':   targetCol = 7;    break;
-            }
-            
-            if (m_currentTurnColor == PieceColor.White) {
-                if (targetCol-1 >= 0 && m_board[targetRow][targetCol-1] == 'P') {
-                    m_moves.add(new MovePair(moveAsString(targetRow, targetCol-1) + moveAsString(targetRow-1, targetCol), 0));
-                }
-                if (targetCol+1 < 8 && m_board[targetRow][targetCol+1] == 'P') {
-                    m_moves.add(new MovePair(moveAsString(targetRow, targetCol+1) + moveAsString(targetRow-1, targetCol), 0));
-                }
-            } else {
-                if (targetCol-1 >= 0 && m_board[targetRow][targetCol-1] == 'p') {
-                    m_moves.add(new MovePair(moveAsString(targetRow, targetCol-1) + moveAsString(targetRow+1, targetCol), 0));
-                }
-                if (targetCol+1 < 8 && m_board[targetRow][targetCol+1] == 'p') {
-                    m_moves.add(new MovePair(moveAsString(targetRow, targetCol+1) + moveAsString(targetRow+1, targetCol), 0));
-                }
-            }
-        }
-    }
-
-    /*  desc:   informs whether the passed piece is a white piece.
-     *  ret:    boolean whether the piece is or is not.
-     */
-    private boolean isPieceWhite(char c) {
-        return c == 'P'
-            || c == 'R'
-            || c == 'N'
-            || c == 'B'
-            || c == 'Q'
-            || c == 'K';
-    }
-
-    /*  desc:   informs whether the passed piece is a black piece.
-     *  ret:    boolean whether the piece is or is not.
-     */
-    private boolean isPieceBlack(char c) {
-        return c == 'p'
-            || c == 'r'
-            || c == 'n'
-            || c == 'b'
-            || c == 'q'
-            || c == 'k';
-    }
-
-    /*  desc:   determines the points associated with capturing a peice.
-     *  args:   c (Character) - represents a chess piece.
-     *  ret:    a float value associated with capturing c.
-     */
-    private float charAsPoints(final char c) {
-        switch (c) {
-            case '.':   return 0;
-            case 'P':   return AI.C_PAWN_WEIGHT;
-            case 'p':   return AI.C_PAWN_WEIGHT;
-            case 'Q':   return AI.C_QUEEN_WEIGHT;
-            case 'q':   return AI.C_QUEEN_WEIGHT;
-            case 'N':   return AI.C_KNIGHT_WEIGHT;
-            case 'n':   return AI.C_KNIGHT_WEIGHT;
-            case 'R':   return AI.C_ROOK_WEIGHT;
-            case 'r':   return AI.C_ROOK_WEIGHT;
-            case 'B':   return AI.C_BISHOP_WEIGHT;
-            case 'b':   return AI.C_BISHOP_WEIGHT;
-            case 'K':   return AI.C_KING_WEIGHT;
-            case 'k':   return AI.C_KING_WEIGHT;
-        }
-        return 0;
-    }
-
-    /*  desc:   converts a row and column int to a UCI notation position.
-     *  ret:    a String representing the row, col pair in UCI notation.
-     */
-    private String moveAsString(final int row, final int col) {
-        return "" + Character.toString((char)(col+97)) + (8-row);
-    }
-
-    /*  desc:   unpacked a UCI notation move as coords in m_board.
-     *  ret:    an array of length 4: [0] - oldRow, [1] - oldCol, [2] - newRow, [3] - newCol .
-     */
-    private int [] unpackMoveAsString(final String uciMove) {
-        return new int [] {
-            8 - Character.getNumericValue(uciMove.charAt(1)),  // unpackedMove[1] - old row
-            Character.getNumericValue(uciMove.charAt(0)) - 10, // unpackedMove[0] - old col
-            8 - Character.getNumericValue(uciMove.charAt(3)),  // unpackedMove[3] - new row
-            Character.getNumericValue(uciMove.charAt(2)) - 10  // unpackedMove[2] - new col
-        };
-    }
-
-    /*  desc:   prints m_board to the terminal.
-     *  ret:    n/a.
-     */
-    public void printBoardAsString(final char [][] chessBoard) {
-        for (int row = 0; row < 8; row++) {
-            String rowAsString = "";
-            for (int col = 0; col < 8; col++) {
-                    rowAsString += chessBoard[row][col];
-            }
-            System.out.println(rowAsString);
-        }
-    }
-
-}
+/**
+ * @author  Jonah Yates
+ * @file    ChessState.java
+ * @brief   contains information about a given ChessState.
+ */
+
+package games.chess;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+public class ChessState {
+
+    /*  colors and piece types. A piece is color*6 + type, so white
+        pieces are 0-5 and black pieces are 6-11 in m_pieces.   */
+    final static int C_WHITE = 0;
+    final static int C_BLACK = 1;
+
+    final static int C_PAWN = 0;
+    final static int C_KNIGHT = 1;
+    final static int C_BISHOP = 2;
+    final static int C_ROOK = 3;
+    final static int C_QUEEN = 4;
+    final static int C_KING = 5;
+
+    final static int C_EMPTY = -1;
+    final static int C_NO_SQUARE = -1;
+    final static String C_PIECE_CHARS = "PNBRQKpnbrqk";
+
+    /*  kinds of moves generateMoves can produce. Captures include en passant and
+        every promotion, quiets are the rest including castling.    */
+    final static int C_GEN_CAPTURES = 1;
+    final static int C_GEN_QUIETS = 2;
+    final static int C_GEN_ALL = C_GEN_CAPTURES | C_GEN_QUIETS;
+
+    /*  castling right bits, and the rights kept when a move touches a square */
+    final static int C_CASTLE_WHITE_KING = 1;
+    final static int C_CASTLE_WHITE_QUEEN = 2;
+    final static int C_CASTLE_BLACK_KING = 4;
+    final static int C_CASTLE_BLACK_QUEEN = 8;
+    final static int [] C_CASTLING_MASK = new int[64];
+
+    /*  move ordering value given to castling moves */
+    final static int C_CASTLING_PRIORITY = (int)(AI.C_CASTLING_VALUE * 100);
+
+    /*  piece values in centipawns indexed by piece type */
+    final static int [] C_PIECE_VALUES = {
+        Math.round(AI.C_PAWN_WEIGHT * 100),
+        Math.round(AI.C_KNIGHT_WEIGHT * 100),
+        Math.round(AI.C_BISHOP_WEIGHT * 100),
+        Math.round(AI.C_ROOK_WEIGHT * 100),
+        Math.round(AI.C_QUEEN_WEIGHT * 100),
+        Math.round(AI.C_KING_WEIGHT * 100)
+    };
+
+    /*  evaluation terms in centipawns */
+    final static int C_DOUBLED_PAWN_PENALTY = 25;
+    final static int C_SUPPORTED_PAWN_BONUS = 25;
+    final static int C_LATE_ROOK_BONUS = 25;
+    final static int C_PAIR_BONUS = 50;
+    final static int C_MOBILITY_BONUS = 3;
+    final static int C_RECENT_MOVE_PENALTY = 100;
+
+    /*  pawn and bishop values by square, from AI's position multipliers. The pawn
+        tables are indexed by color then square, the bishop table is shared.    */
+    final static int [][] C_PAWN_TABLE_EARLY = new int[2][64];
+    final static int [][] C_PAWN_TABLE_LATE = new int[2][64];
+    final static int [] C_BISHOP_TABLE = new int[64];
+
+    /*  search scores. A mate in n plies from the root scores C_MATE - n, so every
+        score at or beyond C_MATE_BOUND is a forced mate.   */
+    final static int C_INFINITY = 32001;
+    final static int C_MATE = 32000;
+
+    /*  quiescence skips captures that leave the score this far below alpha */
+    final static int C_DELTA_MARGIN = 200;
+
+    /*  null move pruning is tried from C_NULL_MOVE_MIN_DEPTH, searching the null move
+        C_NULL_MOVE_REDUCTION plies shallower, one more for every C_NULL_MOVE_DEPTH_STEP
+        plies of depth and for every C_NULL_MOVE_EVAL_STEP centipawns the static evaluation
+        is above beta, up to C_NULL_MOVE_MAX_EVAL_REDUCTION. From C_NULL_MOVE_VERIFY_DEPTH
+        a cutoff is only trusted after a reduced search without null moves confirms it.   */
+    final static int C_NULL_MOVE_MIN_DEPTH = 3;
+    final static int C_NULL_MOVE_REDUCTION = 2;
+    final static int C_NULL_MOVE_DEPTH_STEP = 4;
+    final static int C_NULL_MOVE_EVAL_STEP = 200;
+    final static int C_NULL_MOVE_MAX_EVAL_REDUCTION = 2;
+    final static int C_NULL_MOVE_VERIFY_DEPTH = 10;
+
+    /*  iterations from C_ASPIRATION_MIN_DEPTH start with a window of C_ASPIRATION_WINDOW
+        centipawns either side of the last score, widened by half again on each failure    */
+    final static int C_ASPIRATION_MIN_DEPTH = 4;
+    final static int C_ASPIRATION_WINDOW = 25;
+
+    /*  frontier pruning margins, in centipawns per ply of remaining depth. A node up to
+        C_REVERSE_FUTILITY_MAX_DEPTH whose static evaluation beats beta by the reverse
+        futility margin returns, one up to C_RAZOR_MAX_DEPTH below alpha by the razor margin
+        drops into quiescence, and quiet moves up to C_FUTILITY_MAX_DEPTH are skipped when
+        the evaluation plus the futility margin cannot reach alpha.  */
+    final static int C_REVERSE_FUTILITY_MAX_DEPTH = 6;
+    final static int C_REVERSE_FUTILITY_MARGIN = 120;
+    final static int C_RAZOR_MAX_DEPTH = 2;
+    final static int C_RAZOR_MARGIN = 250;
+    final static int C_FUTILITY_MAX_DEPTH = 3;
+    final static int C_FUTILITY_MARGIN = 150;
+
+    /*  late move reductions start with the C_LMR_MIN_MOVES+1th move from C_LMR_MIN_DEPTH.
+        C_LMR_REDUCTIONS[depth][moves searched] grows with the log of both.   */
+    final static int C_LMR_MIN_DEPTH = 3;
+    final static int C_LMR_MIN_MOVES = 3;
+    final static int C_LMR_TABLE_SIZE = 64;
+    final static double C_LMR_BASE = .75;
+    final static double C_LMR_DIVISOR = 2.25;
+    final static int [][] C_LMR_REDUCTIONS = new int[C_LMR_TABLE_SIZE][C_LMR_TABLE_SIZE];
+
+    /*  late move pruning skips the quiet moves of a node at depth d up to
+        C_LMP_MAX_DEPTH once C_LMP_MOVE_COUNTS[d] moves have been searched   */
+    final static int C_LMP_MAX_DEPTH = 3;
+    final static int [] C_LMP_MOVE_COUNTS = { 0, 5, 8, 13 };
+
+    /*  nodes with at least this depth left search their younger brothers in parallel */
+    final static int C_SPLIT_MIN_DEPTH = 4;
+
+    /*  the score of a scout that was cancelled before it finished */
+    final static int C_SCOUT_CANCELLED = Integer.MIN_VALUE;
+
+    /*  history values are kept within plus or minus this */
+    final static int C_HISTORY_MAX = 1 << 20;
+
+    /*  the clock is read once every this many nodes (a power of two) */
+    final static int C_NODES_PER_TIME_CHECK = 2048;
+
+    static {
+        for (int sq = 0; sq < 64; sq++) {
+            C_CASTLING_MASK[sq] = 15;
+        }
+        for (int depth = 1; depth < C_LMR_TABLE_SIZE; depth++) {
+            for (int moves = 1; moves < C_LMR_TABLE_SIZE; moves++) {
+                C_LMR_REDUCTIONS[depth][moves] = (int)(C_LMR_BASE + Math.log(depth) * Math.log(moves) / C_LMR_DIVISOR);
+            }
+        }
+        C_CASTLING_MASK[0] &= ~C_CASTLE_WHITE_QUEEN;
+        C_CASTLING_MASK[4] &= ~(C_CASTLE_WHITE_KING | C_CASTLE_WHITE_QUEEN);
+        C_CASTLING_MASK[7] &= ~C_CASTLE_WHITE_KING;
+        C_CASTLING_MASK[56] &= ~C_CASTLE_BLACK_QUEEN;
+        C_CASTLING_MASK[60] &= ~(C_CASTLE_BLACK_KING | C_CASTLE_BLACK_QUEEN);
+        C_CASTLING_MASK[63] &= ~C_CASTLE_BLACK_KING;
+
+        for (int sq = 0; sq < 64; sq++) {
+            int row = Bitboard.rowOf(sq), col = Bitboard.colOf(sq);
+            C_PAWN_TABLE_EARLY[C_WHITE][sq] = Math.round(C_PIECE_VALUES[C_PAWN] * AI.C_PAWN_POSITION_WHITE_EARLY[row][col]);
+            C_PAWN_TABLE_EARLY[C_BLACK][sq] = Math.round(C_PIECE_VALUES[C_PAWN] * AI.C_PAWN_POSITION_BLACK_EARLY[row][col]);
+            C_PAWN_TABLE_LATE[C_WHITE][sq] = Math.round(C_PIECE_VALUES[C_PAWN] * AI.C_PAWN_POSITION_WHITE_LATE[row][col]);
+            C_PAWN_TABLE_LATE[C_BLACK][sq] = Math.round(C_PIECE_VALUES[C_PAWN] * AI.C_PAWN_POSITION_BLACK_LATE[row][col]);
+            C_BISHOP_TABLE[sq] = Math.round(C_PIECE_VALUES[C_BISHOP] * AI.C_BISHOP_POSITION[row][col]);
+        }
+    }
+
+    /*  deepest line of moves the undo stack can hold */
+    final static int C_MAX_PLY = 256;
+    final static int C_MATE_BOUND = C_MATE - C_MAX_PLY;
+
+    /*  ChessState member variables */
+    private long [] m_pieces = new long[12];
+    private long [] m_occupancy = new long[2];
+    private long m_occupied;
+    private int [] m_mailbox = new int[64];
+    private int m_sideToMove;
+    private int m_castlingRights;
+    private int m_enPassantSquare;
+    private long m_key;
+    private MoveList m_moves = new MoveList();
+    private MoveList m_specialMoves = new MoveList();
+    private int [] m_seeGains = new int[32];
+
+    /*  undo stack, one entry per move made and not yet unmade. Each entry
+        holds what makeMove cannot recompute from the move itself.      */
+    private int m_ply = 0;
+    private int [] m_undoCaptured = new int[C_MAX_PLY];
+    private int [] m_undoCastlingRights = new int[C_MAX_PLY];
+    private int [] m_undoEnPassantSquare = new int[C_MAX_PLY];
+    private long [] m_undoKey = new long[C_MAX_PLY];
+
+    /*  results of earlier searches, shared across turns when set by the AI and
+        between the threads of a search   */
+    private TranspositionTable m_table;
+    private int m_threads = 1;
+
+    /*  the Young Brothers Wait search, used instead of Lazy SMP when set. Younger brothers
+        are scouted as tasks in m_pool, each on a copy of the position taken from
+        m_splitStates, and the copy knows its split point so a cutoff there stops it.   */
+    private boolean m_youngBrothersWait = false;
+    private ForkJoinPool m_pool;
+    private ConcurrentLinkedQueue<ChessState> m_splitStates;
+    private SplitPoint m_splitPoint;
+
+    /*  triangular principal variation: m_pv[ply] holds the best line found from ply
+        onward, in m_pv[ply][ply] to m_pv[ply][m_pvLength[ply]-1]   */
+    private int [][] m_pv = new int[C_MAX_PLY][C_MAX_PLY];
+    private int [] m_pvLength = new int[C_MAX_PLY];
+
+    /*  the previous iteration's principal variation, searched first by the next one
+        while m_followPv says the current line still matches it   */
+    private int [] m_prevPv = new int[C_MAX_PLY];
+    private int m_prevPvLength = 0;
+    private boolean m_followPv;
+
+    /*  quiet moves that caused a beta cutoff: the last two at each ply, and a
+        butterfly table of cutoff depths by side to move and from | to << 6   */
+    private int [][] m_killers = new int[C_MAX_PLY][2];
+    private int [][] m_history = new int[2][64*64];
+
+    /*  beta cutoffs, and how many of them came from the first move searched */
+    private long m_cutoffs;
+    private long m_firstMoveCutoffs;
+
+    /*  the root moves are kept in m_moves between iterations, with their last score
+        as the MoveList value and the nodes their subtrees took in m_rootNodes  */
+    private long [] m_rootNodes = new long[MoveList.C_MAX_MOVES];
+
+    /*  the last moves played in the game, packed as from | to << 6 */
+    private int [] m_recentMoves = new int[0];
+
+    /*  search limits. m_stopped may be set from another thread through stop(), and the
+        deadline through ponderHit, which starts the pondering time manager. Searches
+        below a split point read the deadline of the root through hardDeadline()  */
+    private long m_nodes;
+    private volatile long m_hardDeadline;
+    private volatile TimeManager m_ponderTimeManager;
+    private volatile boolean m_stopped;
+
+    /*  null moves are not tried before this ply, raised while a null move cutoff is verified */
+    private int m_nullMoveMinPly = 0;
+
+    /*  move lists and pickers for each ply of the search, allocated the first time a ply is reached */
+    private MoveList [] m_plyMoves = new MoveList[C_MAX_PLY];
+    private MovePicker [] m_plyPickers = new MovePicker[C_MAX_PLY];
+
+    /*  desc:   builds a ChessState from a parsed FEN board, with '.' marking empty tiles.
+     *  args:   board (char[8][8]) - row 0 is rank 8, currColor - the side to move,
+     *          castling and enPassant - the matching FEN fields ("-" when absent).
+     */
+    public ChessState(final char [][] board, final PieceColor currColor, final String castling, final String enPassant) {
+        for (int sq = 0; sq < 64; sq++) {
+            m_mailbox[sq] = C_EMPTY;
+        }
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                int piece = C_PIECE_CHARS.indexOf(board[row][col]);
+                if (piece != C_EMPTY) {
+                    putPiece(piece, Bitboard.square(row, col));
+                }
+            }
+        }
+        m_sideToMove = (currColor == PieceColor.White ? C_WHITE : C_BLACK);
+
+        m_castlingRights = parseCastling(castling);
+        m_enPassantSquare = (enPassant.charAt(0) == '-' ? C_NO_SQUARE : Bitboard.stringAsSquare(enPassant, 0));
+        m_key = computeKey();
+    }
+
+    /*  desc:   parses the castling field of a FEN string.
+     *  ret:    the castling rights as C_CASTLE_* flags.
+     */
+    static int parseCastling(final String castling) {
+        int rights = 0;
+        for (int i = 0; i < castling.length(); i++) {
+            switch (castling.charAt(i)) {
+                case 'K':   rights |= C_CASTLE_WHITE_KING;  break;
+                case 'Q':   rights |= C_CASTLE_WHITE_QUEEN; break;
+                case 'k':   rights |= C_CASTLE_BLACK_KING;  break;
+                case 'q':   rights |= C_CASTLE_BLACK_QUEEN; break;
+            }
+        }
+        return rights;
+    }
+
+    /*  desc:   checks this ChessState against a parsed FEN board, such as the game's. The
+     *          en passant square is not compared, since a FEN may leave it out when no
+     *          pawn can take.
+     *  args:   the same as the FEN board constructor.
+     *  ret:    true if the pieces, side to move and castling rights all match.
+     */
+    public boolean matchesBoard(final char [][] board, final PieceColor currColor, final String castling) {
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                if (C_PIECE_CHARS.indexOf(board[row][col]) != m_mailbox[Bitboard.square(row, col)]) {
+                    return false;
+                }
+            }
+        }
+        return m_sideToMove == (currColor == PieceColor.White ? C_WHITE : C_BLACK)
+            && m_castlingRights == parseCastling(castling);
+    }
+
+    /*  desc:   copies the position of another ChessState, so it can be searched on
+     *          another thread. The copy starts with an empty undo stack.
+     */
+    public ChessState(final ChessState other) {
+        copyPosition(other);
+    }
+
+    /*  desc:   sets this ChessState's position to another's, with an empty undo stack.
+     *  ret:    n/a.
+     */
+    private void copyPosition(final ChessState other) {
+        m_ply = 0;
+        System.arraycopy(other.m_pieces, 0, m_pieces, 0, 12);
+        System.arraycopy(other.m_occupancy, 0, m_occupancy, 0, 2);
+        System.arraycopy(other.m_mailbox, 0, m_mailbox, 0, 64);
+        m_occupied = other.m_occupied;
+        m_sideToMove = other.m_sideToMove;
+        m_castlingRights = other.m_castlingRights;
+        m_enPassantSquare = other.m_enPassantSquare;
+        m_key = other.m_key;
+    }
+
+    /*  desc:   builds a ChessState from a full FEN string. The move counters are ignored.
+     *  ret:    the new ChessState.
+     */
+    public static ChessState fromFen(final String fen) {
+        String splitFen [] = fen.trim().split("\\s+");
+        char [][] board = new char[8][8];
+
+        int row = 0, col = 0;
+        for (int i = 0; i < splitFen[0].length(); i++) {
+            char c = splitFen[0].charAt(i);
+            if (c == '/') {
+                row++;
+                col = 0;
+            } else if (Character.isDigit(c)) {
+                for (int n = Character.getNumericValue(c); n > 0; n--) {
+                    board[row][col++] = '.';
+                }
+            } else {
+                board[row][col++] = c;
+            }
+        }
+
+        PieceColor turnColor = splitFen[1].charAt(0) == 'w' ? PieceColor.White : PieceColor.Black;
+        return new ChessState(board, turnColor, splitFen[2], splitFen[3]);
+    }
+
+    /*  desc:   applies a move in place, pushing what is needed to take it back onto
+     *          the undo stack. Handles captures, castling, en passant, promotion,
+     *          castling rights and the side to move.
+     *  ret:    n/a.
+     */
+    public void makeMove(final int move) {
+        int from = Move.from(move), to = Move.to(move), flags = Move.flags(move);
+        int piece = m_mailbox[from];
+
+        m_undoCastlingRights[m_ply] = m_castlingRights;
+        m_undoEnPassantSquare[m_ply] = m_enPassantSquare;
+        m_undoCaptured[m_ply] = C_EMPTY;
+        m_undoKey[m_ply] = m_key;
+
+        // the pieces update the key as they move, the rest is swapped out around them
+        m_key ^= Zobrist.C_CASTLING[m_castlingRights];
+        if (m_enPassantSquare != C_NO_SQUARE) {
+            m_key ^= Zobrist.C_EN_PASSANT_FILE[Bitboard.colOf(m_enPassantSquare)];
+        }
+
+        m_enPassantSquare = C_NO_SQUARE;
+        if (flags == Move.C_EN_PASSANT) {
+            // the captured pawn sits behind the en passant target square
+            int capturedSq = (m_sideToMove == C_WHITE ? to-8 : to+8);
+            m_undoCaptured[m_ply] = m_mailbox[capturedSq];
+            removePiece(capturedSq);
+        } else if (Move.isCapture(move)) {
+            m_undoCaptured[m_ply] = m_mailbox[to];
+            removePiece(to);
+        }
+        removePiece(from);
+        putPiece(Move.isPromotion(move) ? m_sideToMove*6 + Move.promotionType(move) : piece, to);
+
+        if (flags == Move.C_DOUBLE_PUSH) {
+            m_enPassantSquare = (from + to) / 2;
+        } else if (Move.isCastle(move)) {
+            // castling, moving the rook to the other side of the king
+            int rookFrom = (flags == Move.C_KING_CASTLE ? to+1 : to-2);
+            int rookTo = (flags == Move.C_KING_CASTLE ? to-1 : to+1);
+            putPiece(m_mailbox[rookFrom], rookTo);
+            removePiece(rookFrom);
+        }
+
+        m_castlingRights &= C_CASTLING_MASK[from] & C_CASTLING_MASK[to];
+        m_sideToMove ^= 1;
+
+        m_key ^= Zobrist.C_CASTLING[m_castlingRights] ^ Zobrist.C_BLACK_TO_MOVE;
+        if (m_enPassantSquare != C_NO_SQUARE) {
+            m_key ^= Zobrist.C_EN_PASSANT_FILE[Bitboard.colOf(m_enPassantSquare)];
+        }
+        m_ply++;
+    }
+
+    /*  desc:   plays a move of the game, which is never taken back, so a ChessState can
+     *          follow the game between searches. The undo stack is left empty, and the
+     *          killers and previous principal variation move up a ply so the next search
+     *          starts from what this one learned.
+     *  ret:    n/a.
+     */
+    public void playMove(final int move) {
+        makeMove(move);
+        m_ply = 0;
+
+        for (int ply = 0; ply < C_MAX_PLY-1; ply++) {
+            m_killers[ply][0] = m_killers[ply+1][0];
+            m_killers[ply][1] = m_killers[ply+1][1];
+        }
+        m_killers[C_MAX_PLY-1][0] = Move.C_NONE;
+        m_killers[C_MAX_PLY-1][1] = Move.C_NONE;
+
+        if (m_prevPvLength > 1 && m_prevPv[0] == move) {
+            m_prevPvLength--;
+            System.arraycopy(m_prevPv, 1, m_prevPv, 0, m_prevPvLength);
+        } else {
+            m_prevPvLength = 0;
+        }
+    }
+
+    /*  desc:   takes back the last move made, which must be the passed move.
+     *  ret:    n/a.
+     */
+    public void unmakeMove(final int move) {
+        int from = Move.from(move), to = Move.to(move), flags = Move.flags(move);
+
+        m_ply--;
+        m_sideToMove ^= 1;
+        m_castlingRights = m_undoCastlingRights[m_ply];
+        m_enPassantSquare = m_undoEnPassantSquare[m_ply];
+
+        int piece = (Move.isPromotion(move) ? m_sideToMove*6 + C_PAWN : m_mailbox[to]);
+        removePiece(to);
+        putPiece(piece, from);
+
+        if (flags == Move.C_EN_PASSANT) {
+            putPiece(m_undoCaptured[m_ply], m_sideToMove == C_WHITE ? to-8 : to+8);
+        } else if (Move.isCapture(move)) {
+            putPiece(m_undoCaptured[m_ply], to);
+        } else if (Move.isCastle(move)) {
+            int rookFrom = (flags == Move.C_KING_CASTLE ? to+1 : to-2);
+            int rookTo = (flags == Move.C_KING_CASTLE ? to-1 : to+1);
+            putPiece(m_mailbox[rookTo], rookFrom);
+            removePiece(rookTo);
+        }
+
+        // moving the pieces back toggled their keys too, but the saved key is exact
+        m_key = m_undoKey[m_ply];
+    }
+
+    /*  desc:   passes the turn without moving, for null move pruning. Only the side to
+     *          move and the en passant square change.
+     *  ret:    n/a.
+     */
+    void makeNullMove() {
+        m_undoCastlingRights[m_ply] = m_castlingRights;
+        m_undoEnPassantSquare[m_ply] = m_enPassantSquare;
+        m_undoCaptured[m_ply] = C_EMPTY;
+        m_undoKey[m_ply] = m_key;
+
+        if (m_enPassantSquare != C_NO_SQUARE) {
+            m_key ^= Zobrist.C_EN_PASSANT_FILE[Bitboard.colOf(m_enPassantSquare)];
+            m_enPassantSquare = C_NO_SQUARE;
+        }
+        m_sideToMove ^= 1;
+        m_key ^= Zobrist.C_BLACK_TO_MOVE;
+        m_ply++;
+    }
+
+    void unmakeNullMove() {
+        m_ply--;
+        m_sideToMove ^= 1;
+        m_enPassantSquare = m_undoEnPassantSquare[m_ply];
+        m_key = m_undoKey[m_ply];
+    }
+
+    private void putPiece(final int piece, final int sq) {
+        long bit = 1L << sq;
+        m_pieces[piece] |= bit;
+        m_occupancy[piece / 6] |= bit;
+        m_occupied |= bit;
+        m_mailbox[sq] = piece;
+        m_key ^= Zobrist.C_PIECE_SQUARE[piece][sq];
+    }
+
+    private void removePiece(final int sq) {
+        int piece = m_mailbox[sq];
+        long bit = 1L << sq;
+        m_pieces[piece] &= ~bit;
+        m_occupancy[piece / 6] &= ~bit;
+        m_occupied &= ~bit;
+        m_mailbox[sq] = C_EMPTY;
+        m_key ^= Zobrist.C_PIECE_SQUARE[piece][sq];
+    }
+
+    /*  desc:   gets the Zobrist key of the position, kept up to date by makeMove and unmakeMove.
+     *  ret:    the 64 bit key.
+     */
+    public long getKey() {
+        return m_key;
+    }
+
+    /*  desc:   computes the Zobrist key of the position from scratch, to verify the
+     *          incrementally updated one.
+     *  ret:    the 64 bit key.
+     */
+    public long computeKey() {
+        long key = Zobrist.C_CASTLING[m_castlingRights];
+        for (int sq = 0; sq < 64; sq++) {
+            if (m_mailbox[sq] != C_EMPTY) {
+                key ^= Zobrist.C_PIECE_SQUARE[m_mailbox[sq]][sq];
+            }
+        }
+        if (m_enPassantSquare != C_NO_SQUARE) {
+            key ^= Zobrist.C_EN_PASSANT_FILE[Bitboard.colOf(m_enPassantSquare)];
+        }
+        if (m_sideToMove == C_BLACK) {
+            key ^= Zobrist.C_BLACK_TO_MOVE;
+        }
+        return key;
+    }
+
+    /*  desc:   sets the transposition table searches from this ChessState read and fill.
+     *  ret:    n/a.
+     */
+    public void setTranspositionTable(final TranspositionTable table) {
+        m_table = table;
+    }
+
+    /*  desc:   sets the number of threads searches from this ChessState use, this one included.
+     *  ret:    n/a.
+     */
+    public void setThreads(final int threads) {
+        m_threads = Math.max(1, threads);
+    }
+
+    /*  desc:   chooses how searches with more than one thread split the work: Young Brothers
+     *          Wait when set, otherwise Lazy SMP.
+     *  ret:    n/a.
+     */
+    public void setYoungBrothersWait(final boolean youngBrothersWait) {
+        m_youngBrothersWait = youngBrothersWait;
+    }
+
+    /*  desc:   gets the calling ChessState's list of moves (m_moves).
+     *   ret:   the m_moves MoveList.
+     */
+    public MoveList getMoves() {
+        return m_moves;
+    }
+
+    /*  desc:   gets the color whose turn it is in the calling ChessState.
+     *   ret:   the PieceColor to move.
+     */
+    public PieceColor getTurnColor() {
+        return m_sideToMove == C_WHITE ? PieceColor.White : PieceColor.Black;
+    }
+
+    /*  desc:   computes the valid moves for the side to move into m_moves.
+     *  ret:    n/a.
+     */
+    public void computeMoves() {
+        computeMoves(m_moves);
+    }
+
+    /*  desc:   computes the valid moves for the side to move into the passed list.
+     *          Pinned pieces and the squares that answer a check are found once up
+     *          front, so every generated move is legal without being made and tested.
+     *  ret:    n/a.
+     */
+    public void computeMoves(final MoveList moves) {
+        generateMoves(moves, C_GEN_ALL);
+    }
+
+    /*  desc:   computes the valid moves of one kind for the side to move into the passed list,
+     *          so a search can generate captures and quiet moves in separate stages.
+     *  args:   kind (int) - C_GEN_CAPTURES, C_GEN_QUIETS or C_GEN_ALL.
+     *  ret:    n/a.
+     */
+    public void generateMoves(final MoveList moves, final int kind) {
+        moves.clear();
+
+        int us = m_sideToMove*6;
+        int kingSq = Bitboard.lsb(m_pieces[us + C_KING]);
+        long checkers = attackersTo(kingSq, m_occupied) & m_occupancy[m_sideToMove^1];
+
+        // the squares a piece may move to for the kind of moves wanted
+        long targets = 0;
+        if ((kind & C_GEN_CAPTURES) != 0) {
+            targets |= m_occupancy[m_sideToMove^1];
+        }
+        if ((kind & C_GEN_QUIETS) != 0) {
+            targets |= ~m_occupied;
+        }
+
+        // in double check only the king can move
+        if (Bitboard.popcount(checkers) > 1) {
+            addKingMoves(moves, kingSq, targets);
+            return;
+        }
+
+        /*  a single check has to be answered by capturing the checker or
+            blocking the line between it and the king   */
+        long checkMask = ~0L;
+        if (checkers != 0) {
+            checkMask = checkers | Bitboard.C_BETWEEN[kingSq][Bitboard.lsb(checkers)];
+        }
+
+        // pinned pieces may only move along the line through their king and pinner
+        long pinned = pinnedPieces(kingSq);
+
+        // getting the moves from all pieces on the board
+        addPawnMoves(moves, m_pieces[us + C_PAWN] & ~pinned, checkMask, kind);
+        long pinnedPawns = m_pieces[us + C_PAWN] & pinned;
+        while (pinnedPawns != 0) {
+            int sq = Bitboard.lsb(pinnedPawns);
+            pinnedPawns &= pinnedPawns - 1;
+            addPawnMoves(moves, 1L << sq, checkMask & Bitboard.C_LINE[kingSq][sq], kind);
+        }
+        addKnightMoves(moves, m_pieces[us + C_KNIGHT] & ~pinned, checkMask & targets);
+        addSliderMoves(moves, C_BISHOP, checkMask & targets, pinned, kingSq);
+        addSliderMoves(moves, C_ROOK, checkMask & targets, pinned, kingSq);
+        addSliderMoves(moves, C_QUEEN, checkMask & targets, pinned, kingSq);
+        addKingMoves(moves, kingSq, targets);
+
+        // adding possible castling moves, never allowed out of check
+        if (checkers == 0 && (kind & C_GEN_QUIETS) != 0) {
+            addCastlingMoves(moves);
+        }
+
+        // adding possible enPassant moves
+        if ((kind & C_GEN_CAPTURES) != 0) {
+            addEnPassantMoves(moves, kingSq);
+        }
+    }
+
+    /*  desc:   checks a move that did not come from this position's generator, such as a
+     *          stored best move or a killer from a sibling, before it is searched.
+     *  ret:    true if the move is legal here.
+     */
+    boolean isLegal(final int move) {
+        if (move == Move.C_NONE) {
+            return false;
+        }
+
+        int from = Move.from(move), to = Move.to(move), flags = Move.flags(move);
+        int piece = m_mailbox[from];
+        if (piece == C_EMPTY || piece / 6 != m_sideToMove) {
+            return false;
+        }
+
+        // only promotions use the low flag bits alongside the capture bit
+        if (Move.isCapture(move) && !Move.isPromotion(move) && flags != Move.C_CAPTURE && flags != Move.C_EN_PASSANT) {
+            return false;
+        }
+
+        // castling and en passant are rare enough to check against the generator
+        if (Move.isCastle(move) || flags == Move.C_EN_PASSANT) {
+            MoveList special = m_specialMoves;
+            special.clear();
+            if (flags == Move.C_EN_PASSANT) {
+                addEnPassantMoves(special, Bitboard.lsb(m_pieces[m_sideToMove*6 + C_KING]));
+            } else if (!inCheck()) {
+                addCastlingMoves(special);
+            }
+            for (int i = 0; i < special.size(); i++) {
+                if (special.get(i) == move) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // the capture flag has to match what is on the target square
+        int target = m_mailbox[to];
+        if (Move.isCapture(move)
+            ? (target == C_EMPTY || target / 6 == m_sideToMove || target % 6 == C_KING)
+            : target != C_EMPTY) {
+            return false;
+        }
+
+        long toBit = 1L << to;
+        if (piece % 6 == C_PAWN) {
+            int forward = (m_sideToMove == C_WHITE ? 8 : -8);
+            if (Move.isPromotion(move) != (((Bitboard.C_RANK_1 | Bitboard.C_RANK_8) & toBit) != 0)) {
+                return false;
+            }
+            if (Move.isCapture(move)) {
+                if ((Bitboard.C_PAWN_ATTACKS[m_sideToMove][from] & toBit) == 0) {
+                    return false;
+                }
+            } else if (flags == Move.C_DOUBLE_PUSH) {
+                if (to != from + 2*forward || m_mailbox[from + forward] != C_EMPTY
+                    || ((m_sideToMove == C_WHITE ? Bitboard.C_RANK_3 : Bitboard.C_RANK_6) & (1L << (from + forward))) == 0) {
+                    return false;
+                }
+            } else if (to != from + forward) {
+                return false;
+            }
+        } else {
+            if (Move.isPromotion(move) || flags == Move.C_DOUBLE_PUSH) {
+                return false;
+            }
+            long attacks;
+            switch (piece % 6) {
+                case C_KNIGHT:  attacks = Bitboard.C_KNIGHT_ATTACKS[from];                  break;
+                case C_BISHOP:  attacks = Bitboard.bishopAttacks(from, m_occupied);        break;
+                case C_ROOK:    attacks = Bitboard.rookAttacks(from, m_occupied);          break;
+                case C_QUEEN:   attacks = Bitboard.queenAttacks(from, m_occupied);         break;
+                default:        attacks = Bitboard.C_KING_ATTACKS[from];                    break;
+            }
+            if ((attacks & toBit) == 0) {
+                return false;
+            }
+        }
+
+        // the move is possible, it is legal if it does not leave the king attacked
+        makeMove(move);
+        boolean legal = !isSquareAttacked(Bitboard.lsb(m_pieces[(m_sideToMove^1)*6 + C_KING]), m_sideToMove);
+        unmakeMove(move);
+        return legal;
+    }
+
+    /*  desc:   gets the piece on a square.
+     *  ret:    color*6 + type, or C_EMPTY.
+     */
+    int pieceOn(final int sq) {
+        return m_mailbox[sq];
+    }
+
+    /*  desc:   finds the side to move's pieces that are the only thing between their
+     *          king and an enemy slider.
+     *  ret:    a bitboard of the pinned pieces.
+     */
+    private long pinnedPieces(final int kingSq) {
+        int them = (m_sideToMove^1)*6;
+        long enemies = m_occupancy[m_sideToMove^1];
+
+        // enemy sliders that would see the king if only their own pieces were on the board
+        long snipers = (Bitboard.rookAttacks(kingSq, enemies) & (m_pieces[them + C_ROOK] | m_pieces[them + C_QUEEN]))
+            | (Bitboard.bishopAttacks(kingSq, enemies) & (m_pieces[them + C_BISHOP] | m_pieces[them + C_QUEEN]));
+
+        long pinned = 0;
+        while (snipers != 0) {
+            int sq = Bitboard.lsb(snipers);
+            snipers &= snipers - 1;
+
+            long blockers = Bitboard.C_BETWEEN[kingSq][sq] & m_occupied;
+            if (Bitboard.popcount(blockers) == 1) {
+                pinned |= blockers & m_occupancy[m_sideToMove];
+            }
+        }
+        return pinned;
+    }
+
+    /*  desc:   gets the move picker for the current ply of the search.
+     *  ret:    a MovePicker owned by this ply.
+     */
+    private MovePicker plyPicker() {
+        if (m_plyPickers[m_ply] == null) {
+            m_plyPickers[m_ply] = new MovePicker();
+        }
+        return m_plyPickers[m_ply];
+    }
+
+    /*  desc:   gets the move list for the current ply of the search.
+     *  ret:    a MoveList owned by this ply.
+     */
+    private MoveList plyMoves() {
+        if (m_plyMoves[m_ply] == null) {
+            m_plyMoves[m_ply] = new MoveList();
+        }
+        return m_plyMoves[m_ply];
+    }
+
+    /*  desc:   chooses and returns a random move.
+     *  ret:    a random packed move from m_moves.
+     */
+    public int randomMove() {
+        Random rand = new Random();
+        return m_moves.get(rand.nextInt(m_moves.size()));
+    }
+
+    /*  desc:   finds the valid move matching a UCI string, such as one from the game history
+     *          or an opening preset. computeMoves must have been called first.
+     *  ret:    the packed move, or Move.C_NONE if uciMove is not a valid move here.
+     */
+    public int parseMove(final String uciMove) {
+        for (int i = 0; i < m_moves.size(); i++) {
+            if (Move.toUci(m_moves.get(i)).equals(uciMove)) {
+                return m_moves.get(i);
+            }
+        }
+        return Move.C_NONE;
+    }
+
+    /*  desc:   implements TL-ID-DL-MM with a depth limit determined by the game time, and
+     *          a state evaluation heuristic function using material and positioning advantages.
+     *  args:   the game's turn number, history of moves played, and player's time remaining.
+     *  ret:    the best packed move the algorithm could determine in the given time.
+     */
+    public int timeLimited_IterativeDeepening_DepthLimited_MiniMax_AlphaBeta(
+        final int turnNumber, final List<String> history, final double timeRemaining)
+    {
+        // shortcutting the decision process for the first couple of moves
+        int bookMove = openingMove(turnNumber, history);
+        if (bookMove != Move.C_NONE) {
+            return bookMove;
+        }
+
+        // start thinking
+        TimeManager timeManager = new TimeManager(timeRemaining, turnNumber);
+        m_hardDeadline = timeManager.hardDeadline();
+        m_stopped = false;
+        return search(timeManager, history);
+    }
+
+    /*  desc:   looks the position up in the opening presets. A preset that is not legal
+     *          here, such as a reply to a pawn that has already moved, is passed over.
+     *  args:   the game's turn number and history of moves played.
+     *  ret:    the packed preset move, or Move.C_NONE to search instead.
+     */
+    private int openingMove(final int turnNumber, final List<String> history) {
+        PieceColor currentTurnColor = getTurnColor();
+
+        if (turnNumber <= 10) {  // use a set of good opening moves
+            if (turnNumber == 1 && currentTurnColor == PieceColor.White) {          // if white, move e4 (kings pawn) for agressive attack
+                return parseMove("e2e4");
+            } else if (turnNumber == 1 && currentTurnColor == PieceColor.Black) {   // if black's move, lookup and respond to white's move
+                // if white played e4, counter with Silicans defense
+                if ("e2e4".equals(history.get(0))) {
+                    return parseMove("c7c5");
+                }
+            } else if (currentTurnColor == PieceColor.White) {                      // follow through with the initiative
+                /*  checking if the series of previous moves
+                    matches any openings in whiteOpenings    */
+                for (String [] preset : AI.whiteOpenings) {
+                    boolean match = true;
+                    for (int i = 0; i < 2*(turnNumber-1) && match && 2*(turnNumber-1) < preset.length; i++) {
+                        if (!preset[i].equals(history.get(i))) {
+                            match = false;
+                        }
+                    }
+                    if (match && 2*(turnNumber-1) < preset.length) {
+                        int move = parseMove(preset[2*(turnNumber-1)]);
+                        if (move != Move.C_NONE) {
+                            return move;
+                        }
+                    }
+                }
+            } else {                                                                // counter and punish white's offensive
+                /*  checking if white's opening 2 moves
+                    resembles scholar's mate and countering  */
+                if (turnNumber == 2
+                    && ("e2e3".equals(history.get(0)) || "e2e4".equals(history.get(0)))
+                    && ("f1c4".equals(history.get(2)) || "d1h5".equals(history.get(2)))) {
+                    int move = parseMove("g7g6");
+                    if (move != Move.C_NONE) {
+                        return move;
+                    }
+                }
+
+                /*  checking if any of moves in
+                    blackCounters can be played */
+                for (String [] preset : AI.blackCounters) {
+                    boolean match = true;
+                    for (int i = 0; i <= 2*(turnNumber-1) && match && 2*(turnNumber-1)+1 < preset.length; i++) {
+                        if (!preset[i].equals(history.get(i))) {
+                            match = false;
+                        }
+                    }
+                    if (match && 2*(turnNumber-1)+1 < preset.length) {
+                        int move = parseMove(preset[2*(turnNumber-1)+1]);
+                        if (move != Move.C_NONE) {
+                            return move;
+                        }
+                    }
+                }
+
+            }
+        }
+        return Move.C_NONE;
+    }
+
+    /*  desc:   readies a search of this position on the opponent's time, to be run with
+     *          ponder. It is set up here, before the search thread starts, so a stop()
+     *          or ponderHit that comes before the search does is not lost.
+     *  ret:    n/a.
+     */
+    public void preparePonder() {
+        m_ponderTimeManager = new TimeManager();
+        m_hardDeadline = m_ponderTimeManager.hardDeadline();
+        m_stopped = false;
+    }
+
+    /*  desc:   searches the position expected after the opponent's reply, without a time
+     *          limit until ponderHit gives it one or stop() ends it.
+     *  args:   history - the game's moves up to and including the expected reply.
+     *  ret:    the best packed move found.
+     */
+    public int ponder(final List<String> history) {
+        return search(m_ponderTimeManager, history);
+    }
+
+    /*  desc:   tells a pondering search that the opponent played the expected move, so it
+     *          goes on as a normal search with limits counted from now. What it has already
+     *          searched is kept.
+     *  args:   the player's time remaining in nanoseconds and the new turn number.
+     *  ret:    n/a.
+     */
+    public void ponderHit(final double timeRemaining, final int turnNumber) {
+        m_ponderTimeManager.start(timeRemaining, turnNumber);
+        m_hardDeadline = m_ponderTimeManager.hardDeadline();
+    }
+
+    /*  desc:   gets the opponent's expected reply to the move a search chose.
+     *  ret:    the second move of the last completed principal variation if it starts
+     *          with bestMove, otherwise Move.C_NONE.
+     */
+    public int getPonderMove(final int bestMove) {
+        return (m_prevPvLength >= 2 && m_prevPv[0] == bestMove ? m_prevPv[1] : Move.C_NONE);
+    }
+
+    /*  desc:   searches the position within the time manager's limits. The deadline and
+     *          stop flag must already be set.
+     *  ret:    the best packed move found.
+     */
+    private int search(final TimeManager timeManager, final List<String> history) {
+        if (m_table == null) {
+            m_table = new TranspositionTable(TranspositionTable.C_DEFAULT_MB);
+        }
+        m_table.newSearch();
+        m_nodes = 0;
+        m_nullMoveMinPly = 0;
+
+        // a forced move needs no search, and a mated or stalemated side has nothing to search
+        computeMoves();
+        if (m_moves.size() == 0) {
+            return Move.C_NONE;
+        }
+        if (m_moves.size() == 1) {
+            return m_moves.get(0);
+        }
+
+        // packing the recently played moves once so the root can compare them without Strings
+        m_recentMoves = new int[Math.min(6, history.size())];
+        for (int i = 0; i < m_recentMoves.length; i++) {
+            String uciMove = history.get(history.size()-1-i);
+            m_recentMoves[i] = Move.encode(Bitboard.stringAsSquare(uciMove, 0), Bitboard.stringAsSquare(uciMove, 2), 0);
+        }
+
+        /*  ordering the root for the first iteration, with the line carried over from the
+            last turn's search first, or else any move a previous search stored */
+        long entry = m_table.probe(m_key);
+        int firstMove = (entry != 0 ? TranspositionTable.move(entry) : Move.C_NONE);
+        if (m_prevPvLength > 0) {
+            firstMove = m_prevPv[0];
+        }
+        for (int i = 0; i < m_moves.size(); i++) {
+            if (m_moves.get(i) == firstMove) {
+                m_moves.set(i, m_moves.get(i), Integer.MAX_VALUE);
+            }
+            m_rootNodes[i] = 0;
+        }
+        m_moves.sortByValue();
+        int orderedFirst = m_moves.get(0);
+        clearOrdering();
+
+        int bestMove;
+        if (m_threads > 1 && m_youngBrothersWait) {
+            bestMove = searchYoungBrothersWait(timeManager);
+        } else {
+            bestMove = searchLazySmp(timeManager);
+        }
+
+        // stopped before any root move was searched, the move ordered first is the best guess
+        if (bestMove == Move.C_NONE) {
+            bestMove = orderedFirst;
+        }
+
+        return bestMove;
+    }
+
+    /*  desc:   runs the search with m_threads-1 helper threads beside this one. Helpers run
+     *          the same iterative deepening on their own copies of the position, half of them
+     *          a ply ahead, and share what they find through the transposition table. Only
+     *          this thread's result is played.
+     *  ret:    the best packed move found, or Move.C_NONE.
+     */
+    private int searchLazySmp(final TimeManager timeManager) {
+        ChessState [] helpers = new ChessState[m_threads - 1];
+        Thread [] helperThreads = new Thread[m_threads - 1];
+        for (int i = 0; i < helpers.length; i++) {
+            final ChessState helper = new ChessState(this);
+            final int firstDepth = 1 + (i+1) % 2;
+            helper.prepareHelper(this);
+            helpers[i] = helper;
+            helperThreads[i] = new Thread(new Runnable() {
+                public void run() {
+                    helper.iterativeDeepening(null, firstDepth);
+                }
+            }, "search-helper-" + (i+1));
+            helperThreads[i].setDaemon(true);
+            helperThreads[i].start();
+        }
+
+        int bestMove = iterativeDeepening(timeManager, 1);
+
+        for (ChessState helper : helpers) {
+            helper.stop();
+        }
+        for (Thread helperThread : helperThreads) {
+            try {
+                helperThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        return bestMove;
+    }
+
+    /*  desc:   runs the search in a fork/join pool of m_threads threads, where nodes deep
+     *          enough search their first move alone and then their younger brothers in
+     *          parallel (Young Brothers Wait).
+     *  ret:    the best packed move found, or Move.C_NONE.
+     */
+    private int searchYoungBrothersWait(final TimeManager timeManager) {
+        m_pool = new ForkJoinPool(m_threads);
+        m_splitStates = new ConcurrentLinkedQueue<ChessState>();
+        try {
+            return m_pool.invoke(new RecursiveTask<Integer>() {
+                protected Integer compute() {
+                    return iterativeDeepening(timeManager, 1);
+                }
+            });
+        } finally {
+            m_pool.shutdownNow();
+            m_pool = null;
+            m_splitStates = null;
+        }
+    }
+
+    /*  desc:   searches the root moves in m_moves one ply deeper each iteration, with
+     *          aspiration windows, until the time manager or stop() ends the search.
+     *  args:   timeManager (TimeManager) - the search's time limits, or null for a helper
+     *          thread, which searches until it is stopped. firstDepth (int) - the depth
+     *          of the first iteration.
+     *  ret:    the best packed move found, or Move.C_NONE if no iteration got that far.
+     */
+    private int iterativeDeepening(final TimeManager timeManager, final int firstDepth) {
+        int bestMove = Move.C_NONE;
+        int score = 0;
+        for (int depth = firstDepth; depth < C_MAX_PLY; depth++) {
+            /*  aspiration windows: deeper iterations search a narrow window around the last
+                score, widening it on the side that failed until the score falls inside  */
+            int delta = C_ASPIRATION_WINDOW;
+            int alpha = -C_INFINITY, beta = C_INFINITY;
+            if (depth >= C_ASPIRATION_MIN_DEPTH && Math.abs(score) < C_MATE_BOUND) {
+                alpha = Math.max(score - delta, -C_INFINITY);
+                beta = Math.min(score + delta, C_INFINITY);
+            }
+
+            while (true) {
+                score = searchRoot(depth, alpha, beta);
+
+                /*  an aborted or failed low search only changes the root line once a root
+                    move has been searched into the window, and the previous best is searched
+                    first, so its line is still the best known move  */
+                if (m_pvLength[0] > 0) {
+                    bestMove = m_pv[0][0];
+                }
+
+                if (m_stopped) {
+                    break;
+                }
+                // a full window cannot widen, so its score stands even outside it
+                if (alpha == -C_INFINITY && beta == C_INFINITY) {
+                    break;
+                }
+                if (score <= alpha) {
+                    beta = (alpha + beta) / 2;
+                    alpha = Math.max(score - delta, -C_INFINITY);
+                } else if (score >= beta) {
+                    // the move that failed high is searched first when the window widens
+                    sortRootMoves();
+                    beta = Math.min(score + delta, C_INFINITY);
+                } else {
+                    break;
+                }
+                delta += delta / 2;
+                if (Math.abs(score) >= C_MATE_BOUND) {
+                    alpha = -C_INFINITY;
+                    beta = C_INFINITY;
+                }
+            }
+
+            if (m_stopped) {
+                if (timeManager != null) {
+                    System.out.println("stopped in depth: " + depth + " after " + m_nodes + " nodes");
+                }
+                break;
+            }
+            sortRootMoves();
+            m_prevPvLength = m_pvLength[0];
+            System.arraycopy(m_pv[0], 0, m_prevPv, 0, m_prevPvLength);
+
+            // helpers have no time manager and run until they are stopped
+            if (timeManager == null) {
+                if (Math.abs(score) >= C_MATE_BOUND) {
+                    break;
+                }
+                continue;
+            }
+            timeManager.iterationDone(bestMove, score);
+            if (!timeManager.canStartIteration() || Math.abs(score) >= C_MATE_BOUND) {
+                System.out.println("hit depth: " + depth + " score: " + score + " pv: " + pvAsString()
+                    + " first move cutoffs: " + (m_cutoffs == 0 ? 0 : 100 * m_firstMoveCutoffs / m_cutoffs) + "%");
+                break;
+            }
+        }
+
+        return bestMove;
+    }
+
+    /*  desc:   readies a copy of the main search's position to search alongside it: the
+     *          same table, deadline, recently played moves and root move order.
+     *  ret:    n/a.
+     */
+    private void prepareHelper(final ChessState main) {
+        m_table = main.m_table;
+        m_hardDeadline = main.m_hardDeadline;
+        m_recentMoves = main.m_recentMoves;
+
+        m_moves.clear();
+        for (int i = 0; i < main.m_moves.size(); i++) {
+            m_moves.add(main.m_moves.get(i), main.m_moves.getValue(i));
+        }
+        m_prevPvLength = 0;
+        clearOrdering();
+    }
+
+    /*  desc:   asks a running search to unwind as soon as possible and return its best move so far.
+     *  ret:    n/a.
+     */
+    public void stop() {
+        m_stopped = true;
+    }
+
+    /*  desc:   counts a node and, every C_NODES_PER_TIME_CHECK nodes, checks the hard deadline.
+     *  ret:    true when the search has to unwind.
+     */
+    private boolean shouldStop() {
+        if ((++m_nodes & (C_NODES_PER_TIME_CHECK-1)) == 0
+            && (System.nanoTime() >= hardDeadline() || (m_splitPoint != null && m_splitPoint.isCancelled()))) {
+            m_stopped = true;
+        }
+        return m_stopped;
+    }
+
+    /*  desc:   gets the time at which the search has to unwind. Below a split point it is the
+     *          deadline of the search that split, so a ponder hit reaches every search.
+     *  ret:    the deadline, in System.nanoTime terms.
+     */
+    long hardDeadline() {
+        return (m_splitPoint == null ? m_hardDeadline : m_splitPoint.hardDeadline());
+    }
+
+    /*  desc:   searches the root moves in m_moves to the given depth, recording each one's
+     *          score and subtree size for ordering the next iteration.
+     *  ret:    the best score in centipawns for the side to move.
+     */
+    private int searchRoot(final int depth, int alpha, final int beta) {
+        m_pvLength[0] = 0;
+        int alphaOrig = alpha;
+        int bestMove = Move.C_NONE;
+        int bestScore = -C_INFINITY;
+        int bestPenalty = 0;
+        int maxPenalty = 0;
+
+        for (int i = 0; i < m_moves.size(); i++) {
+            int move = m_moves.get(i);
+            long nodesBefore = m_nodes;
+
+            // the first root move continues the previous iteration's line
+            m_followPv = (i == 0 && m_prevPvLength > 0 && move == m_prevPv[0]);
+
+            /*  discouraging the root from repeating recently played moves. The penalty is
+                taken off after the search, so the window is raised by it beforehand  */
+            int penalty = 0;
+            for (int recentMove : m_recentMoves) {
+                if (recentMove == (move & 0xFFF)) {
+                    penalty += C_RECENT_MOVE_PENALTY;
+                }
+            }
+
+            // principal variation search, as in negamax
+            this.makeMove(move);
+            int score;
+            if (i == 0) {
+                score = -this.negamax(depth-1, -beta-penalty, -alpha-penalty, 1, move);
+            } else {
+                score = -this.negamax(depth-1, -alpha-penalty-1, -alpha-penalty, 1, move);
+                if (score - penalty > alpha && score - penalty < beta && !m_stopped) {
+                    score = -this.negamax(depth-1, -beta-penalty, -alpha-penalty, 1, move);
+                }
+            }
+            this.unmakeMove(move);
+
+            if (m_stopped) {
+                return 0;
+            }
+
+            score -= penalty;
+            m_moves.set(i, move, score);
+            m_rootNodes[i] = m_nodes - nodesBefore;
+            maxPenalty = Math.max(maxPenalty, penalty);
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                bestPenalty = penalty;
+
+                if (score > alpha) {
+                    alpha = score;
+                    m_pv[0][0] = move;
+                    System.arraycopy(m_pv[1], 1, m_pv[0], 1, m_pvLength[1] - 1);
+                    m_pvLength[0] = Math.max(m_pvLength[1], 1);
+                }
+            }
+            if (alpha >= beta) {
+                break;
+            }
+        }
+
+        /*  the table keeps the position's own value, as the root can come back inside the tree
+            where the penalty does not apply. Once a move was penalised the scores without it
+            are only bounds: every move is at most its score plus the largest penalty, and
+            the best is at least its own score without its penalty  */
+        int bound = TranspositionTable.C_EXACT;
+        int tableScore = bestScore + bestPenalty;
+        if (bestScore <= alphaOrig) {
+            bound = TranspositionTable.C_UPPER;
+            tableScore = bestScore + maxPenalty;
+        } else if (bestScore >= beta || maxPenalty > 0) {
+            bound = TranspositionTable.C_LOWER;
+        }
+        m_table.store(m_key, bestMove, depth, bound, scoreToTable(tableScore, 0));
+
+        return bestScore;
+    }
+
+    /*  desc:   orders the root moves for the next iteration: the best move first, then by
+     *          score, with ties (most often moves that all failed low) going to the move
+     *          whose subtree took the most nodes to refute.
+     *  ret:    n/a.
+     */
+    private void sortRootMoves() {
+        int best = (m_pvLength[0] > 0 ? m_pv[0][0] : Move.C_NONE);
+        for (int i = 1; i < m_moves.size(); i++) {
+            int move = m_moves.get(i), score = m_moves.getValue(i);
+            long nodes = m_rootNodes[i];
+            int j = i - 1;
+            while (j >= 0 && m_moves.get(j) != best
+                && (move == best || m_moves.getValue(j) < score
+                    || (m_moves.getValue(j) == score && m_rootNodes[j] < nodes))) {
+                m_moves.set(j+1, m_moves.get(j), m_moves.getValue(j));
+                m_rootNodes[j+1] = m_rootNodes[j];
+                j--;
+            }
+            m_moves.set(j+1, move, score);
+            m_rootNodes[j+1] = nodes;
+        }
+    }
+
+    /*  desc:   searches the position to the given depth with negamax alpha-beta, where each
+     *          side maximizes its own score. Moves are made and unmade on this ChessState,
+     *          and the best line found is left in the triangular m_pv array.
+     *  args:   ply (int) - the distance from the root, prevMove (int) - the move that led here.
+     *  ret:    the score in centipawns for the side to move, or a mate score by distance.
+     */
+    private int negamax(final int depth, int alpha, int beta, final int ply, final int prevMove) {
+        m_pvLength[ply] = ply;
+
+        // the score of an unwinding search is never used
+        if (shouldStop()) {
+            return 0;
+        }
+
+        // checking if the search depth is reached, then only resolving captures
+        if (depth <= 0 || ply >= C_MAX_PLY-1) {
+            return quiescence(alpha, beta, ply);
+        }
+
+        /*  checking the transposition table for an earlier search of this position.
+            Its bound can end the search here, except in full window nodes, where
+            returning early would cut the principal variation short  */
+        boolean pvNode = (beta - alpha > 1);
+        int alphaOrig = alpha;
+        int hashMove = Move.C_NONE;
+        long entry = m_table.probe(m_key);
+        if (entry != 0) {
+            hashMove = TranspositionTable.move(entry);
+            if (!pvNode && TranspositionTable.depth(entry) >= depth) {
+                int score = scoreFromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.C_EXACT
+                    || (bound == TranspositionTable.C_LOWER && score >= beta)
+                    || (bound == TranspositionTable.C_UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        // the move continuing the previous iteration's principal variation, while still on it
+        boolean onPv = m_followPv;
+        int pvMove = (onPv && ply < m_prevPvLength ? m_prevPv[ply] : Move.C_NONE);
+
+        /*  the static evaluation drives the pruning below, which is only done out of check
+            in nodes searched with a null window, off the principal variation  */
+        boolean inCheck = inCheck();
+        boolean canPrune = !pvNode && !onPv && !inCheck;
+        int staticEval = (canPrune ? evaluate() : -C_INFINITY);
+
+        // reverse futility pruning, the position is so far above beta no move will drop it below
+        if (canPrune && depth <= C_REVERSE_FUTILITY_MAX_DEPTH && Math.abs(beta) < C_MATE_BOUND
+            && staticEval - C_REVERSE_FUTILITY_MARGIN * depth >= beta) {
+            return staticEval;
+        }
+
+        // razoring, the position is so far below alpha only a capture could save it
+        if (canPrune && depth <= C_RAZOR_MAX_DEPTH && staticEval + C_RAZOR_MARGIN * depth <= alpha) {
+            int score = quiescence(alpha, beta, ply);
+            if (m_stopped) {
+                return 0;
+            }
+            if (score <= alpha) {
+                return score;
+            }
+            m_pvLength[ply] = ply;
+        }
+
+        /*  null move pruning: if passing the turn still fails high on a reduced search, a
+            real move would too. Passing is never tried twice in a row, in check, or with
+            only pawns left, where zugzwang makes passing better than any move.   */
+        if (canPrune && staticEval >= beta && prevMove != Move.C_NONE && depth >= C_NULL_MOVE_MIN_DEPTH
+            && ply >= m_nullMoveMinPly && beta < C_MATE_BOUND && hasPiecesBesidesPawns(m_sideToMove)) {
+            int reduction = C_NULL_MOVE_REDUCTION + depth / C_NULL_MOVE_DEPTH_STEP
+                + Math.min((staticEval - beta) / C_NULL_MOVE_EVAL_STEP, C_NULL_MOVE_MAX_EVAL_REDUCTION);
+
+            this.makeNullMove();
+            int score = -this.negamax(depth-1-reduction, -beta, -beta+1, ply+1, Move.C_NONE);
+            this.unmakeNullMove();
+
+            if (m_stopped) {
+                return 0;
+            }
+
+            if (score >= beta) {
+                // a mate found after passing is not a proven mate
+                if (score >= C_MATE_BOUND) {
+                    score = beta;
+                }
+                if (depth < C_NULL_MOVE_VERIFY_DEPTH) {
+                    return score;
+                }
+
+                /*  deep cutoffs are verified by a reduced search of this node, with null
+                    moves off for the first three quarters of its plies   */
+                int minPly = m_nullMoveMinPly;
+                m_nullMoveMinPly = ply + 3 * (depth-reduction) / 4;
+                int verified = this.negamax(depth-reduction, beta-1, beta, ply, prevMove);
+                m_nullMoveMinPly = minPly;
+
+                if (m_stopped) {
+                    return 0;
+                }
+                if (verified >= beta) {
+                    return score;
+                }
+                m_pvLength[ply] = ply;
+            }
+        }
+
+        // picking moves in heuristic order, with the principal variation then the stored best move first
+        MovePicker picker = plyPicker();
+        picker.init(this, pvMove, hashMove, m_killers[ply][0], m_killers[ply][1], m_history[m_sideToMove]);
+
+        int bestMove = Move.C_NONE;
+        int bestScore = -C_INFINITY;
+        int movesSearched = 0;
+
+        // futility pruning, no quiet move is expected to gain enough to reach alpha
+        boolean futile = (canPrune && depth <= C_FUTILITY_MAX_DEPTH && Math.abs(alpha) < C_MATE_BOUND
+            && staticEval + C_FUTILITY_MARGIN * depth <= alpha);
+
+        /*  once the younger brothers have been scouted in parallel they are taken from here,
+            with their null window scores as values, instead of from the picker   */
+        MoveList siblings = null;
+        int siblingIndex = 0;
+        int siblingAlpha = alpha;
+
+        for (int move = picker.next(); move != Move.C_NONE;
+                move = (siblings == null ? picker.next()
+                    : siblingIndex < siblings.size() ? siblings.get(siblingIndex++) : Move.C_NONE)) {
+            boolean quiet = !Move.isCapture(move) && !Move.isPromotion(move);
+
+            // late move pruning, quiet moves this late at the frontier rarely raise alpha
+            if (quiet && canPrune && depth <= C_LMP_MAX_DEPTH && movesSearched >= C_LMP_MOVE_COUNTS[depth]
+                && bestScore > -C_MATE_BOUND) {
+                continue;
+            }
+
+            this.makeMove(move);
+            boolean givesCheck = inCheck();
+
+            // a futile quiet move is still searched if it gives check, or a mate could be missed
+            if (futile && quiet && !givesCheck && bestScore > -C_MATE_BOUND) {
+                this.unmakeMove(move);
+                continue;
+            }
+
+            movesSearched++;
+            m_followPv = (onPv && move == pvMove);
+
+            int reduction = lateMoveReduction(move, depth, movesSearched, ply, pvNode, inCheck, givesCheck);
+
+            /*  principal variation search: the first move gets the full window and the rest
+                are only shown to be no better with a null window, at reduced depth first,
+                unless one raises alpha and has to be searched again for its exact score  */
+            int score;
+            if (movesSearched == 1) {
+                score = -this.negamax(depth-1, -beta, -alpha, ply+1, move);
+            } else {
+                /*  the parallel scout stands unless it failed high against a lower alpha. One
+                    cancelled by a cutoff that did not hold up here is searched as though not split  */
+                score = (siblings != null ? siblings.getValue(siblingIndex-1) : C_SCOUT_CANCELLED);
+                if (score == C_SCOUT_CANCELLED) {
+                    score = -this.negamax(depth-1-reduction, -alpha-1, -alpha, ply+1, move);
+                    if (score > alpha && reduction > 0 && !m_stopped) {
+                        score = -this.negamax(depth-1, -alpha-1, -alpha, ply+1, move);
+                    }
+                } else if (score > siblingAlpha && alpha != siblingAlpha) {
+                    score = -this.negamax(depth-1, -alpha-1, -alpha, ply+1, move);
+                }
+                if (score > alpha && score < beta && !m_stopped) {
+                    score = -this.negamax(depth-1, -beta, -alpha, ply+1, move);
+                }
+            }
+            this.unmakeMove(move);
+
+            if (m_stopped) {
+                return 0;
+            }
+            picker.searched(move);
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+
+                if (score > alpha) {
+                    alpha = score;
+
+                    // the line through this move is the best so far
+                    m_pv[ply][ply] = move;
+                    System.arraycopy(m_pv[ply+1], ply+1, m_pv[ply], ply+1, m_pvLength[ply+1] - (ply+1));
+                    m_pvLength[ply] = Math.max(m_pvLength[ply+1], ply+1);
+                }
+            }
+
+            // alpha-beta pruning
+            if (alpha >= beta) {
+                m_cutoffs++;
+                if (movesSearched == 1) {
+                    m_firstMoveCutoffs++;
+                }
+                if (quiet) {
+                    updateQuietOrdering(picker, move, ply, depth);
+                }
+                break;
+            }
+
+            /*  Young Brothers Wait: the eldest brother did not cut off, so the rest of the
+                moves are scouted in parallel, then taken in order as though searched here  */
+            if (movesSearched == 1 && siblings == null && m_pool != null && depth >= C_SPLIT_MIN_DEPTH) {
+                siblings = plyMoves();
+                siblings.clear();
+                for (int sibling = picker.next(); sibling != Move.C_NONE; sibling = picker.next()) {
+                    this.makeMove(sibling);
+                    boolean siblingGivesCheck = inCheck();
+                    this.unmakeMove(sibling);
+                    siblings.add(sibling, lateMoveReduction(sibling, depth, siblings.size()+2, ply, pvNode, inCheck,
+                        siblingGivesCheck));
+                }
+                siblingAlpha = alpha;
+                boolean complete = searchSiblings(siblings, depth, alpha, beta, ply);
+
+                if (!complete || isCancelled()) {
+                    m_stopped = true;
+                    return 0;
+                }
+
+                // the brother that failed high is taken first, so the node is cut off before any cancelled one
+                for (int i = 0; i < siblings.size(); i++) {
+                    if (siblings.getValue(i) >= beta) {
+                        int cutMove = siblings.get(i);
+                        int cutScore = siblings.getValue(i);
+                        for (int j = i; j > 0; j--) {
+                            siblings.set(j, siblings.get(j-1), siblings.getValue(j-1));
+                        }
+                        siblings.set(0, cutMove, cutScore);
+                        break;
+                    }
+                }
+            }
+        }
+
+        // no legal moves is checkmate, scored by its distance from the root, or stalemate
+        if (movesSearched == 0) {
+            return (inCheck ? -C_MATE + ply : 0);
+        }
+
+        int bound = TranspositionTable.C_EXACT;
+        if (bestScore <= alphaOrig) {
+            bound = TranspositionTable.C_UPPER;
+        } else if (bestScore >= beta) {
+            bound = TranspositionTable.C_LOWER;
+        }
+        m_table.store(m_key, bestMove, depth, bound, scoreToTable(bestScore, ply));
+
+        return bestScore;
+    }
+
+    /*  desc:   finds how many plies shallower a move is first searched. With good ordering a
+     *          late quiet move is unlikely to be best, so it is searched shallower first and
+     *          only searched again at full depth if it raises alpha. Moves that give check,
+     *          or get out of it, are not reduced.
+     *  args:   movesSearched (int) - the move's place in the node, counting from 1.
+     *  ret:    the reduction in plies.
+     */
+    private int lateMoveReduction(final int move, final int depth, final int movesSearched, final int ply,
+            final boolean pvNode, final boolean inCheck, final boolean givesCheck) {
+        if (Move.isCapture(move) || Move.isPromotion(move) || inCheck || givesCheck
+            || depth < C_LMR_MIN_DEPTH || movesSearched <= C_LMR_MIN_MOVES) {
+            return 0;
+        }
+
+        int reduction = C_LMR_REDUCTIONS[Math.min(depth, C_LMR_TABLE_SIZE-1)][Math.min(movesSearched, C_LMR_TABLE_SIZE-1)];
+        if (pvNode || move == m_killers[ply][0] || move == m_killers[ply][1]) {
+            reduction--;
+        }
+        return Math.max(0, Math.min(reduction, depth-2));
+    }
+
+    /*  desc:   scouts the younger brothers of a node in parallel, each on its own copy of the
+     *          position, with a null window at alpha. A brother that fails high on the node's
+     *          beta cancels the others, since the node is cut off either way. At a PV node
+     *          beating alpha is not a cutoff, so the other scouts go on.
+     *  args:   siblings (MoveList) - the moves, with each one's late move reduction as its
+     *          value. The values are replaced by the scores, or C_SCOUT_CANCELLED.
+     *          beta (int) - the node's beta.
+     *  ret:    false if a scout was stopped without a brother failing high, such as by
+     *          the deadline, so the node's result cannot be trusted.
+     */
+    private boolean searchSiblings(final MoveList siblings, final int depth, final int alpha, final int beta,
+            final int ply) {
+        final SplitPoint splitPoint = new SplitPoint(this);
+
+        List<RecursiveTask<Integer>> tasks = new ArrayList<RecursiveTask<Integer>>(siblings.size());
+        for (int i = 0; i < siblings.size(); i++) {
+            final int move = siblings.get(i);
+            final int reduction = siblings.getValue(i);
+            tasks.add(new RecursiveTask<Integer>() {
+                protected Integer compute() {
+                    if (splitPoint.isCancelled()) {
+                        return C_SCOUT_CANCELLED;
+                    }
+
+                    ChessState child = splitState(splitPoint);
+                    child.makeMove(move);
+                    int score = -child.negamax(depth-1-reduction, -alpha-1, -alpha, ply+1, move);
+                    if (score > alpha && reduction > 0 && !child.m_stopped) {
+                        score = -child.negamax(depth-1, -alpha-1, -alpha, ply+1, move);
+                    }
+                    child.unmakeMove(move);
+
+                    boolean stopped = child.m_stopped;
+                    m_splitStates.offer(child);
+                    if (stopped) {
+                        return C_SCOUT_CANCELLED;
+                    }
+                    if (score >= beta) {
+                        splitPoint.cancel();
+                    }
+                    return score;
+                }
+            });
+        }
+
+        ForkJoinTask.invokeAll(tasks);
+        boolean complete = true;
+        for (int i = 0; i < siblings.size(); i++) {
+            int score = tasks.get(i).join();
+            siblings.set(i, siblings.get(i), score);
+            complete &= (score != C_SCOUT_CANCELLED);
+        }
+        return complete || splitPoint.isCutOff();
+    }
+
+    /*  desc:   gets a copy of the position to search a younger brother on, reusing one left
+     *          by an earlier task when there is one. Copies share the table, history and pool
+     *          of the search, and read its deadline through the split point.
+     *  ret:    the copy, ready to search below the split point.
+     */
+    private ChessState splitState(final SplitPoint splitPoint) {
+        ChessState child = m_splitStates.poll();
+        if (child == null) {
+            child = new ChessState(this);
+        } else {
+            child.copyPosition(this);
+        }
+
+        child.m_table = m_table;
+        child.m_history = m_history;
+        child.m_pool = m_pool;
+        child.m_splitStates = m_splitStates;
+        child.m_splitPoint = splitPoint;
+        child.m_nullMoveMinPly = m_nullMoveMinPly;
+        child.m_nodes = 0;
+        child.m_stopped = false;
+        child.m_followPv = false;
+        child.m_prevPvLength = 0;
+        return child;
+    }
+
+    /*  desc:   informs whether this search has been stopped, or cancelled by a cutoff at a
+     *          split point above it.
+     *  ret:    true if its result will not be used.
+     */
+    boolean isCancelled() {
+        return m_stopped || (m_splitPoint != null && m_splitPoint.isCancelled());
+    }
+
+    /*  desc:   records a quiet move that caused a beta cutoff as a killer at its ply and
+     *          rewards it in the history table by depth squared. The quiet moves searched
+     *          before it failed to cut off, so they lose the same amount.
+     *  args:   picker (MovePicker) - the node's picker, which knows the quiet moves tried.
+     *  ret:    n/a.
+     */
+    private void updateQuietOrdering(final MovePicker picker, final int move, final int ply, final int depth) {
+        if (m_killers[ply][0] != move) {
+            m_killers[ply][1] = m_killers[ply][0];
+            m_killers[ply][0] = move;
+        }
+
+        int [] history = m_history[m_sideToMove];
+        int bonus = depth * depth;
+        history[move & 0xFFF] += bonus;
+        boolean full = (history[move & 0xFFF] >= C_HISTORY_MAX);
+
+        int [] tried = picker.quietsTried();
+        for (int i = 0; i < picker.quietsTriedCount(); i++) {
+            if (tried[i] != move) {
+                history[tried[i] & 0xFFF] -= bonus;
+                full |= (history[tried[i] & 0xFFF] <= -C_HISTORY_MAX);
+            }
+        }
+
+        // halving the whole table keeps it bounded and lets newer cutoffs count for more
+        if (full) {
+            ageHistory();
+        }
+    }
+
+    /*  desc:   clears the cutoff counts and ages the history for a new search. Killers are
+     *          kept, as playMove moves them to the plies they now belong to.
+     *  ret:    n/a.
+     */
+    private void clearOrdering() {
+        ageHistory();
+        m_cutoffs = 0;
+        m_firstMoveCutoffs = 0;
+    }
+
+    private void ageHistory() {
+        for (int side = 0; side < 2; side++) {
+            for (int i = 0; i < 64*64; i++) {
+                m_history[side][i] /= 2;
+            }
+        }
+    }
+
+    /*  desc:   searches captures and promotions only, until the position is quiet, so the
+     *          evaluation is never taken with pieces hanging. The side to move may stand pat
+     *          on the static evaluation instead of capturing. Captures that cannot raise
+     *          alpha even with a margin, or that lose material by SEE, are skipped. In check
+     *          every evasion is searched and there is no standing pat.
+     *  ret:    the score in centipawns for the side to move, or a mate score by distance.
+     */
+    private int quiescence(int alpha, final int beta, final int ply) {
+        m_pvLength[ply] = ply;
+
+        if (shouldStop()) {
+            return 0;
+        }
+        if (ply >= C_MAX_PLY-1) {
+            return evaluate();
+        }
+
+        boolean inCheck = inCheck();
+        MoveList moves = plyMoves();
+        int standPat = -C_INFINITY;
+        int bestScore = -C_INFINITY;
+
+        if (inCheck) {
+            computeMoves(moves);
+            if (moves.size() == 0) {
+                return -C_MATE + ply;
+            }
+        } else {
+            standPat = evaluate();
+            if (standPat >= beta) {
+                return standPat;
+            }
+            alpha = Math.max(alpha, standPat);
+            bestScore = standPat;
+            generateMoves(moves, C_GEN_CAPTURES);
+        }
+
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            moves.set(i, move, Move.isCapture(move) || Move.isPromotion(move) ? mvvLva(move) : 0);
+        }
+        moves.sortByValue();
+
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+
+            if (!inCheck) {
+                // delta pruning, the capture cannot bring the score up to alpha
+                if (!Move.isPromotion(move) && standPat + captureValue(move) + C_DELTA_MARGIN <= alpha) {
+                    continue;
+                }
+
+                // the capture loses material once the exchange is played out
+                if (see(move) < 0) {
+                    continue;
+                }
+            }
+
+            this.makeMove(move);
+            int score = -this.quiescence(-beta, -alpha, ply+1);
+            this.unmakeMove(move);
+
+            if (m_stopped) {
+                return 0;
+            }
+
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) {
+                    alpha = score;
+                    m_pv[ply][ply] = move;
+                    System.arraycopy(m_pv[ply+1], ply+1, m_pv[ply], ply+1, m_pvLength[ply+1] - (ply+1));
+                    m_pvLength[ply] = Math.max(m_pvLength[ply+1], ply+1);
+                }
+            }
+            if (alpha >= beta) {
+                break;
+            }
+        }
+
+        return bestScore;
+    }
+
+    /*  desc:   gets the value of what a move captures.
+     *  ret:    the captured piece's value in centipawns, or 0 for a non-capture.
+     */
+    int captureValue(final int move) {
+        if (Move.flags(move) == Move.C_EN_PASSANT) {
+            return C_PIECE_VALUES[C_PAWN];
+        }
+        return (Move.isCapture(move) ? C_PIECE_VALUES[m_mailbox[Move.to(move)] % 6] : 0);
+    }
+
+    /*  desc:   orders a capture or promotion by the value of what it takes, then by the
+     *          cheapness of the piece taking it. Promotions add the piece they create.
+     *  ret:    the ordering value.
+     */
+    int mvvLva(final int move) {
+        int value = captureValue(move) * 8;
+        if (Move.isPromotion(move)) {
+            value += C_PIECE_VALUES[Move.promotionType(move)] * 8;
+        }
+        return value - m_mailbox[Move.from(move)] % 6;
+    }
+
+    /*  desc:   mate scores are stored in the transposition table as the distance from
+     *          the stored position rather than from the root, since the same position
+     *          can be reached at different plies.
+     *  ret:    the score to store.
+     */
+    private static int scoreToTable(final int score, final int ply) {
+        if (score >= C_MATE_BOUND) {
+            return score + ply;
+        } else if (score <= -C_MATE_BOUND) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    /*  desc:   converts a mate score read from the transposition table back to the
+     *          distance from the root.
+     *  ret:    the score relative to the root.
+     */
+    private static int scoreFromTable(final int score, final int ply) {
+        if (score >= C_MATE_BOUND) {
+            return score - ply;
+        } else if (score <= -C_MATE_BOUND) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    /*  desc:   gets the principal variation of the last search in UCI notation.
+     *  ret:    the moves separated by spaces.
+     */
+    String pvAsString() {
+        StringBuilder pv = new StringBuilder();
+        for (int i = 0; i < m_pvLength[0]; i++) {
+            if (i > 0) {
+                pv.append(' ');
+            }
+            pv.append(Move.toUci(m_pv[0][i]));
+        }
+        return pv.toString();
+    }
+
+    /*  desc:   scores the position in centipawns for the side to move, as the
+     *          difference between what each side has on the board.
+     *  ret:    the score as an int.
+     */
+    int evaluate() {
+        int piecesRemaining = Bitboard.popcount(m_occupied);
+        int score = evaluateSide(C_WHITE, piecesRemaining) - evaluateSide(C_BLACK, piecesRemaining);
+        return (m_sideToMove == C_WHITE ? score : -score);
+    }
+
+    /*  desc:   scores one color's material and its placement. Pawns are worth more in the
+     *          center early and on the edges late (14 or fewer pieces), are weakened when
+     *          doubled and strengthened when supported. Bishops prefer the long diagonals,
+     *          rooks and pairs of bishops or rooks get bonuses by game phase, and every
+     *          piece but pawns and the king gains a little for each square it attacks.
+     *  ret:    the color's score in centipawns.
+     */
+    private int evaluateSide(final int color, final int piecesRemaining) {
+        int us = color*6;
+        boolean early = (piecesRemaining > 14);
+        long own = m_occupancy[color];
+        int score = 0;
+
+        long pawns = m_pieces[us + C_PAWN];
+        int [] pawnTable = (early ? C_PAWN_TABLE_EARLY : C_PAWN_TABLE_LATE)[color];
+        for (long bb = pawns; bb != 0; bb &= bb - 1) {
+            int sq = Bitboard.lsb(bb);
+            score += pawnTable[sq];
+
+            // reducing pawn weight for doubled pawns
+            int ahead = (color == C_WHITE ? sq+8 : sq-8);
+            if (ahead >= 0 && ahead < 64 && (pawns & (1L << ahead)) != 0) {
+                score -= C_DOUBLED_PAWN_PENALTY;
+            }
+
+            // increasing pawn weight if supported by 2 or 1 pawns
+            int supporters = Bitboard.popcount(Bitboard.C_PAWN_ATTACKS[color^1][sq] & pawns);
+            if (supporters == 2) {
+                score += C_SUPPORTED_PAWN_BONUS;
+            } else if (supporters == 1) {
+                score += C_SUPPORTED_PAWN_BONUS / 2;
+            }
+        }
+
+        for (long bb = m_pieces[us + C_KNIGHT]; bb != 0; bb &= bb - 1) {
+            int sq = Bitboard.lsb(bb);
+            score += C_PIECE_VALUES[C_KNIGHT]
+                + C_MOBILITY_BONUS * Bitboard.popcount(Bitboard.C_KNIGHT_ATTACKS[sq] & ~own);
+        }
+        for (long bb = m_pieces[us + C_BISHOP]; bb != 0; bb &= bb - 1) {
+            int sq = Bitboard.lsb(bb);
+            score += C_BISHOP_TABLE[sq]
+                + C_MOBILITY_BONUS * Bitboard.popcount(Bitboard.bishopAttacks(sq, m_occupied) & ~own);
+        }
+        for (long bb = m_pieces[us + C_ROOK]; bb != 0; bb &= bb - 1) {
+            int sq = Bitboard.lsb(bb);
+            score += C_PIECE_VALUES[C_ROOK] + (early ? 0 : C_LATE_ROOK_BONUS)
+                + C_MOBILITY_BONUS * Bitboard.popcount(Bitboard.rookAttacks(sq, m_occupied) & ~own);
+        }
+        for (long bb = m_pieces[us + C_QUEEN]; bb != 0; bb &= bb - 1) {
+            int sq = Bitboard.lsb(bb);
+            score += C_PIECE_VALUES[C_QUEEN]
+                + C_MOBILITY_BONUS * Bitboard.popcount(Bitboard.queenAttacks(sq, m_occupied) & ~own);
+        }
+
+        // awarding points for bishop pairs in early game and rook pairs in late game
+        if (early && Bitboard.popcount(m_pieces[us + C_BISHOP]) == 2) {
+            score += C_PAIR_BONUS;
+        }
+        if (!early && Bitboard.popcount(m_pieces[us + C_ROOK]) == 2) {
+            score += C_PAIR_BONUS;
+        }
+
+        return score;
+    }
+
+    /*  desc:   informs whether a side has a knight, bishop, rook or queen, without which
+     *          zugzwang is likely and passing the turn tells nothing.
+     *  ret:    true if it has one.
+     */
+    private boolean hasPiecesBesidesPawns(final int color) {
+        return (m_occupancy[color] & ~m_pieces[color*6 + C_PAWN] & ~m_pieces[color*6 + C_KING]) != 0;
+    }
+
+    /*  desc:   informs whether the side to move's king is in check.
+     *  ret:    a boolean informing whether the king is in check.
+     */
+    public boolean inCheck() {
+        return isSquareAttacked(Bitboard.lsb(m_pieces[m_sideToMove*6 + C_KING]), m_sideToMove^1);
+    }
+
+    /*  desc:   static exchange evaluation: plays out every capture on the move's target square,
+     *          each side recapturing with its least valuable attacker and either side free to
+     *          stop, without searching. Sliders behind a piece that has captured join in as
+     *          x-rays. Pins are ignored.
+     *  ret:    the material the move wins in centipawns, negative when it loses material.
+     */
+    int see(final int move) {
+        if (Move.isCastle(move)) {
+            return 0;
+        }
+
+        int from = Move.from(move), to = Move.to(move);
+        int [] gains = m_seeGains;
+        long occupied = m_occupied ^ (1L << from);
+
+        // what the move itself captures, and the piece then left on the target square
+        int onTarget = m_mailbox[from] % 6;
+        gains[0] = 0;
+        if (Move.flags(move) == Move.C_EN_PASSANT) {
+            gains[0] = C_PIECE_VALUES[C_PAWN];
+            occupied ^= 1L << (m_sideToMove == C_WHITE ? to-8 : to+8);
+        } else if (Move.isCapture(move)) {
+            gains[0] = C_PIECE_VALUES[m_mailbox[to] % 6];
+        }
+        if (Move.isPromotion(move)) {
+            onTarget = Move.promotionType(move);
+            gains[0] += C_PIECE_VALUES[onTarget] - C_PIECE_VALUES[C_PAWN];
+        }
+
+        long bishopsQueens = m_pieces[C_BISHOP] | m_pieces[6 + C_BISHOP] | m_pieces[C_QUEEN] | m_pieces[6 + C_QUEEN];
+        long rooksQueens = m_pieces[C_ROOK] | m_pieces[6 + C_ROOK] | m_pieces[C_QUEEN] | m_pieces[6 + C_QUEEN];
+        long attackers = attackersTo(to, occupied) & occupied;
+
+        int side = m_sideToMove ^ 1;
+        int depth = 0;
+        while (depth < gains.length - 1) {
+            long ownAttackers = attackers & m_occupancy[side];
+            if (ownAttackers == 0) {
+                break;
+            }
+
+            // recapturing with the least valuable attacker
+            int type = C_PAWN;
+            while ((ownAttackers & m_pieces[side*6 + type]) == 0) {
+                type++;
+            }
+            long attackerBit = Long.lowestOneBit(ownAttackers & m_pieces[side*6 + type]);
+
+            // the king cannot recapture onto a square the other side still attacks
+            if (type == C_KING && (attackers & m_occupancy[side^1]) != 0) {
+                break;
+            }
+
+            depth++;
+            gains[depth] = C_PIECE_VALUES[onTarget] - gains[depth-1];
+
+            occupied ^= attackerBit;
+            if (type == C_PAWN || type == C_BISHOP || type == C_QUEEN) {
+                attackers |= Bitboard.bishopAttacks(to, occupied) & bishopsQueens;
+            }
+            if (type == C_ROOK || type == C_QUEEN) {
+                attackers |= Bitboard.rookAttacks(to, occupied) & rooksQueens;
+            }
+            attackers &= occupied;
+
+            onTarget = type;
+            side ^= 1;
+        }
+
+        // each side only makes a capture when it is better than stopping
+        while (depth > 0) {
+            gains[depth-1] = -Math.max(-gains[depth-1], gains[depth]);
+            depth--;
+        }
+        return gains[0];
+    }
+
+    /*  desc:   finds every piece, of either color, attacking a square. The occupancy is passed
+     *          in so a piece can be lifted off the board, like a king stepping along a check ray.
+     *  ret:    a bitboard of the attacking pieces.
+     */
+    long attackersTo(final int sq, final long occupied) {
+        long bishopsQueens = m_pieces[C_BISHOP] | m_pieces[6 + C_BISHOP] | m_pieces[C_QUEEN] | m_pieces[6 + C_QUEEN];
+        long rooksQueens = m_pieces[C_ROOK] | m_pieces[6 + C_ROOK] | m_pieces[C_QUEEN] | m_pieces[6 + C_QUEEN];
+
+        return (Bitboard.C_PAWN_ATTACKS[C_BLACK][sq] & m_pieces[C_PAWN])
+            | (Bitboard.C_PAWN_ATTACKS[C_WHITE][sq] & m_pieces[6 + C_PAWN])
+            | (Bitboard.C_KNIGHT_ATTACKS[sq] & (m_pieces[C_KNIGHT] | m_pieces[6 + C_KNIGHT]))
+            | (Bitboard.C_KING_ATTACKS[sq] & (m_pieces[C_KING] | m_pieces[6 + C_KING]))
+            | (Bitboard.bishopAttacks(sq, occupied) & bishopsQueens)
+            | (Bitboard.rookAttacks(sq, occupied) & rooksQueens);
+    }
+
+    /*  desc:   informs whether a square is attacked by any piece of the given color.
+     *  args:   sq (int) - the square, byColor (int) - the attacking color.
+     *  ret:    a boolean informing whether sq is attacked.
+     */
+    public boolean isSquareAttacked(final int sq, final int byColor) {
+        int them = byColor*6;
+        if ((Bitboard.C_PAWN_ATTACKS[byColor^1][sq] & m_pieces[them + C_PAWN]) != 0
+            || (Bitboard.C_KNIGHT_ATTACKS[sq] & m_pieces[them + C_KNIGHT]) != 0
+            || (Bitboard.C_KING_ATTACKS[sq] & m_pieces[them + C_KING]) != 0) {
+            return true;
+        }
+
+        long queens = m_pieces[them + C_QUEEN];
+        long rooksQueens = m_pieces[them + C_ROOK] | queens;
+        if (rooksQueens != 0 && (Bitboard.rookAttacks(sq, m_occupied) & rooksQueens) != 0) {
+            return true;
+        }
+        long bishopsQueens = m_pieces[them + C_BISHOP] | queens;
+        return bishopsQueens != 0 && (Bitboard.bishopAttacks(sq, m_occupied) & bishopsQueens) != 0;
+    }
+
+    /*  desc:   adds the moves of the given pawns of the side to move. Pushes onto the
+     *          last rank are promotions, so they count as captures for kind.
+     *  args:   pawns (long) - the pawns to move, allowed (long) - the squares they may move to,
+     *          kind (int) - which moves to add, see generateMoves.
+     *  ret:    n/a.
+     */
+    private void addPawnMoves(final MoveList moves, final long pawns, final long allowed, final int kind) {
+        long empty = ~m_occupied;
+        long enemies = m_occupancy[m_sideToMove^1] & allowed;
+        long promotionRank = (m_sideToMove == C_WHITE ? Bitboard.C_RANK_8 : Bitboard.C_RANK_1);
+
+        // adding possible forward movements, and the 2 tile move if it is the pawn's first move
+        int forward = (m_sideToMove == C_WHITE ? 8 : -8);
+        long singlePushes = (m_sideToMove == C_WHITE ? pawns << 8 : pawns >>> 8) & empty;
+        if ((kind & C_GEN_CAPTURES) != 0) {
+            addPawnTargets(moves, singlePushes & allowed & promotionRank, forward, Move.C_QUIET);
+        }
+        if ((kind & C_GEN_QUIETS) != 0) {
+            addPawnTargets(moves, singlePushes & allowed & ~promotionRank, forward, Move.C_QUIET);
+            long doublePushes = (m_sideToMove == C_WHITE
+                ? (singlePushes & Bitboard.C_RANK_3) << 8
+                : (singlePushes & Bitboard.C_RANK_6) >>> 8);
+            addPawnTargets(moves, doublePushes & empty & allowed, 2*forward, Move.C_DOUBLE_PUSH);
+        }
+
+        // adding possible diagonal left and right capture movements
+        if ((kind & C_GEN_CAPTURES) != 0) {
+            if (m_sideToMove == C_WHITE) {
+                addPawnTargets(moves, ((pawns & ~Bitboard.C_FILE_A) << 7) & enemies, 7, Move.C_CAPTURE);
+                addPawnTargets(moves, ((pawns & ~Bitboard.C_FILE_H) << 9) & enemies, 9, Move.C_CAPTURE);
+            } else {
+                addPawnTargets(moves, ((pawns & ~Bitboard.C_FILE_H) >>> 7) & enemies, -7, Move.C_CAPTURE);
+                addPawnTargets(moves, ((pawns & ~Bitboard.C_FILE_A) >>> 9) & enemies, -9, Move.C_CAPTURE);
+            }
+        }
+    }
+
+    /*  desc:   adds a pawn move for each target square, the pawn being delta squares behind it.
+     *  ret:    n/a.
+     */
+    private void addPawnTargets(final MoveList moves, long targets, final int delta, final int flags) {
+        while (targets != 0) {
+            int to = Bitboard.lsb(targets);
+            targets &= targets - 1;
+
+            if (((Bitboard.C_RANK_1 | Bitboard.C_RANK_8) & (1L << to)) != 0) {
+                // pawn reached other side, adding each kind of promotion
+                for (int type = C_QUEEN; type >= C_KNIGHT; type--) {
+                    moves.add(Move.encodePromotion(to - delta, to, type, flags == Move.C_CAPTURE), 0);
+                }
+            } else {
+                moves.add(Move.encode(to - delta, to, flags), 0);
+            }
+        }
+    }
+
+    /*  desc:   adds the moves of the given knights, which can never be pinned and still move.
+     *  ret:    n/a.
+     */
+    private void addKnightMoves(final MoveList moves, long knights, final long allowed) {
+        while (knights != 0) {
+            int from = Bitboard.lsb(knights);
+            knights &= knights - 1;
+            addTargets(moves, from, Bitboard.C_KNIGHT_ATTACKS[from] & ~m_occupancy[m_sideToMove] & allowed);
+        }
+    }
+
+    /*  desc:   adds the moves of every bishop, rook or queen of the side to move,
+     *          keeping pinned sliders on the line through their king.
+     *  ret:    n/a.
+     */
+    private void addSliderMoves(final MoveList moves, final int type, final long allowed, final long pinned, final int kingSq) {
+        long sliders = m_pieces[m_sideToMove*6 + type];
+        while (sliders != 0) {
+            int from = Bitboard.lsb(sliders);
+            sliders &= sliders - 1;
+
+            long attacks;
+            switch (type) {
+                case C_BISHOP:  attacks = Bitboard.bishopAttacks(from, m_occupied); break;
+                case C_ROOK:    attacks = Bitboard.rookAttacks(from, m_occupied);   break;
+                default:        attacks = Bitboard.queenAttacks(from, m_occupied);  break;
+            }
+            if ((pinned & (1L << from)) != 0) {
+                attacks &= Bitboard.C_LINE[kingSq][from];
+            }
+            addTargets(moves, from, attacks & ~m_occupancy[m_sideToMove] & allowed);
+        }
+    }
+
+    /*  desc:   adds the king's steps onto squares no enemy piece attacks. The king is lifted
+     *          off the board for the test so it cannot hide from a slider behind itself.
+     *  args:   allowed (long) - the squares the king may move to.
+     *  ret:    n/a.
+     */
+    private void addKingMoves(final MoveList moves, final int kingSq, final long allowed) {
+        long occupied = m_occupied & ~(1L << kingSq);
+        long enemies = m_occupancy[m_sideToMove^1];
+        long targets = Bitboard.C_KING_ATTACKS[kingSq] & ~m_occupancy[m_sideToMove] & allowed;
+        while (targets != 0) {
+            int to = Bitboard.lsb(targets);
+            targets &= targets - 1;
+            if ((attackersTo(to, occupied) & enemies) == 0) {
+                moves.add(Move.encode(kingSq, to, m_mailbox[to] == C_EMPTY ? Move.C_QUIET : Move.C_CAPTURE), 0);
+            }
+        }
+    }
+
+    /*  desc:   adds a move from -> each square in targets.
+     *  ret:    n/a.
+     */
+    private void addTargets(final MoveList moves, final int from, long targets) {
+        while (targets != 0) {
+            int to = Bitboard.lsb(targets);
+            targets &= targets - 1;
+            moves.add(Move.encode(from, to, m_mailbox[to] == C_EMPTY ? Move.C_QUIET : Move.C_CAPTURE), 0);
+        }
+    }
+
+    /*  desc:   adds castling moves whose path is empty and unattacked. Only called
+     *          when the king is not in check.
+     *  ret:    n/a.
+     */
+    private void addCastlingMoves(final MoveList moves) {
+        if (m_sideToMove == C_WHITE) {
+            if ((m_castlingRights & C_CASTLE_WHITE_KING) != 0
+                && (m_occupied & 0x60L) == 0
+                && !isSquareAttacked(5, C_BLACK)
+                && !isSquareAttacked(6, C_BLACK))
+            {
+                moves.add(Move.encode(4, 6, Move.C_KING_CASTLE), C_CASTLING_PRIORITY);
+            }
+            if ((m_castlingRights & C_CASTLE_WHITE_QUEEN) != 0
+                && (m_occupied & 0x0EL) == 0
+                && !isSquareAttacked(3, C_BLACK)
+                && !isSquareAttacked(2, C_BLACK))
+            {
+                moves.add(Move.encode(4, 2, Move.C_QUEEN_CASTLE), C_CASTLING_PRIORITY);
+            }
+        } else {
+            if ((m_castlingRights & C_CASTLE_BLACK_KING) != 0
+                && (m_occupied & (0x60L << 56)) == 0
+                && !isSquareAttacked(61, C_WHITE)
+                && !isSquareAttacked(62, C_WHITE))
+            {
+                moves.add(Move.encode(60, 62, Move.C_KING_CASTLE), C_CASTLING_PRIORITY);
+            }
+            if ((m_castlingRights & C_CASTLE_BLACK_QUEEN) != 0
+                && (m_occupied & (0x0EL << 56)) == 0
+                && !isSquareAttacked(59, C_WHITE)
+                && !isSquareAttacked(58, C_WHITE))
+            {
+                moves.add(Move.encode(60, 58, Move.C_QUEEN_CASTLE), C_CASTLING_PRIORITY);
+            }
+        }
+    }
+
+    /*  desc:   adds en passant captures. Two pawns leave the capturer's rank at once, which can
+     *          expose the king in ways a pin mask misses, so each one is made and tested instead.
+     *  ret:    n/a.
+     */
+    private void addEnPassantMoves(final MoveList moves, final int kingSq) {
+        if (m_enPassantSquare == C_NO_SQUARE) {
+            return;
+        }
+
+        // the pawns that could capture onto the target are those a pawn of the other color would attack from it
+        long capturers = Bitboard.C_PAWN_ATTACKS[m_sideToMove^1][m_enPassantSquare] & m_pieces[m_sideToMove*6 + C_PAWN];
+        while (capturers != 0) {
+            int from = Bitboard.lsb(capturers);
+            capturers &= capturers - 1;
+
+            int move = Move.encode(from, m_enPassantSquare, Move.C_EN_PASSANT);
+            makeMove(move);
+            boolean valid = !isSquareAttacked(kingSq, m_sideToMove);
+            unmakeMove(move);
+
+            if (valid) {
+                moves.add(move, 0);
+            }
+        }
+    }
+
+    /*  desc:   prints the board to the terminal, rank 8 first.
+     *  ret:    n/a.
+     */
+    public void printBoardAsString() {
+        for (int row = 0; row < 8; row++) {
+            String rowAsString = "";
+            for (int col = 0; col < 8; col++) {
+                int piece = m_mailbox[Bitboard.square(row, col)];
+                rowAsString += (piece == C_EMPTY ? '.' : C_PIECE_CHARS.charAt(piece));
+            }
+            System.out.println(rowAsString);
+        }
+    }
+
+}
@@ -0,0 +1,81 @@
+/**
+ * @author  Jonah Yates
+ * @file    Move.java
+ * @brief   packs a chess move into the low 16 bits of an int: bits 0-5 hold
+ *          the from square, bits 6-11 the to square and bits 12-15 the flags.
+ */
+
+package games.chess;
+
+public final class Move {
+
+    /*  0 would be a1a1, which is never a legal move */
+    final static int C_NONE = 0;
+
+    /*  flags. Bit 2 marks captures and bit 3 marks promotions, in which
+        case the low 2 bits select the promoted piece (knight to queen).  */
+    final static int C_QUIET = 0;
+    final static int C_DOUBLE_PUSH = 1;
+    final static int C_KING_CASTLE = 2;
+    final static int C_QUEEN_CASTLE = 3;
+    final static int C_CAPTURE = 4;
+    final static int C_EN_PASSANT = 5;
+    final static int C_PROMOTION = 8;
+    final static int C_PROMOTION_CAPTURE = 12;
+
+    private Move() {}
+
+    static int encode(final int from, final int to, final int flags) {
+        return from | (to << 6) | (flags << 12);
+    }
+
+    /*  desc:   encodes a promotion to the given piece type.
+     *  ret:    the packed move.
+     */
+    static int encodePromotion(final int from, final int to, final int promotionType, final boolean capture) {
+        return encode(from, to, (capture ? C_PROMOTION_CAPTURE : C_PROMOTION) | (promotionType - ChessState.C_KNIGHT));
+    }
+
+    static int from(final int move) {
+        return move & 63;
+    }
+
+    static int to(final int move) {
+        return (move >>> 6) & 63;
+    }
+
+    static int flags(final int move) {
+        return (move >>> 12) & 15;
+    }
+
+    static boolean isCapture(final int move) {
+        return (flags(move) & C_CAPTURE) != 0;
+    }
+
+    static boolean isPromotion(final int move) {
+        return (flags(move) & C_PROMOTION) != 0;
+    }
+
+    static boolean isCastle(final int move) {
+        int flags = flags(move);
+        return flags == C_KING_CASTLE || flags == C_QUEEN_CASTLE;
+    }
+
+    /*  desc:   gets the piece type a promotion turns the pawn into.
+     *  ret:    a ChessState piece type, only meaningful when isPromotion(move).
+     */
+    static int promotionType(final int move) {
+        return ChessState.C_KNIGHT + (flags(move) & 3);
+    }
+
+    /*  desc:   converts a packed move to Universal Chess Interface notation.
+     *  ret:    a String such as "e2e4" or "e7e8q".
+     */
+    static String toUci(final int move) {
+        String uci = Bitboard.squareAsString(from(move)) + Bitboard.squareAsString(to(move));
+        if (isPromotion(move)) {
+            uci += Character.toLowerCase(ChessState.C_PIECE_CHARS.charAt(promotionType(move)));
+        }
+        return uci;
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * @author  Jonah Yates
+ * @file    MoveList.java
+ * @brief   a fixed capacity list of packed moves and their ordering values,
+ *          backed by primitive arrays so generating moves allocates nothing.
+ */
+
+package games.chess;
+
+public class MoveList {
+
+    /*  no legal chess position has more than 218 moves */
+    final static int C_MAX_MOVES = 256;
+
+    private int [] m_moves = new int[C_MAX_MOVES];
+    private int [] m_values = new int[C_MAX_MOVES];
+    private int m_size = 0;
+
+    public void clear() {
+        m_size = 0;
+    }
+
+    public void add(final int move, final int value) {
+        m_moves[m_size] = move;
+        m_values[m_size] = value;
+        m_size++;
+    }
+
+    public int get(final int i) {
+        return m_moves[i];
+    }
+
+    public int getValue(final int i) {
+        return m_values[i];
+    }
+
+    public int size() {
+        return m_size;
+    }
+
+    public void set(final int i, final int move, final int value) {
+        m_moves[i] = move;
+        m_values[i] = value;
+    }
+
+    /*  desc:   drops every move at or after index size.
+     *  ret:    n/a.
+     */
+    public void truncate(final int size) {
+        m_size = size;
+    }
+
+    /*  desc:   sorts the moves by value, highest first. Insertion sort is stable
+     *          and fast for the short, mostly zero valued lists generated here.
+     *  ret:    n/a.
+     */
+    public void sortByValue() {
+        for (int i = 1; i < m_size; i++) {
+            int move = m_moves[i];
+            int value = m_values[i];
+            int j = i - 1;
+            while (j >= 0 && m_values[j] < value) {
+                m_moves[j+1] = m_moves[j];
+                m_values[j+1] = m_values[j];
+                j--;
+            }
+            m_moves[j+1] = move;
+            m_values[j+1] = value;
+        }
+    }
+}
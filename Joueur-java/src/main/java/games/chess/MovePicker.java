@@ -0,0 +1,217 @@
+/**
+ * @author  Jonah Yates
+ * @file    MovePicker.java
+ * @brief   hands out the moves of a search node one at a time, in stages: the principal
+ *          variation and stored best moves, captures that do not lose material by MVV-LVA,
+ *          killers, quiet moves by history, then the losing captures. Each stage is only
+ *          generated once the ones before it have been searched without a cutoff, so cut
+ *          nodes rarely generate quiet moves at all.
+ */
+
+package games.chess;
+
+public class MovePicker {
+
+    final static int C_STAGE_PV = 0;
+    final static int C_STAGE_HASH = 1;
+    final static int C_STAGE_GENERATE_CAPTURES = 2;
+    final static int C_STAGE_CAPTURES = 3;
+    final static int C_STAGE_KILLER_1 = 4;
+    final static int C_STAGE_KILLER_2 = 5;
+    final static int C_STAGE_GENERATE_QUIETS = 6;
+    final static int C_STAGE_QUIETS = 7;
+    final static int C_STAGE_BAD_CAPTURES = 8;
+    final static int C_STAGE_DONE = 9;
+
+    private ChessState m_state;
+    private MoveList m_moves = new MoveList();
+    private int m_index;
+    private int m_stage;
+
+    private int m_pvMove;
+    private int m_hashMove;
+    private int m_killer1;
+    private int m_killer2;
+    private int [] m_history;
+
+    /*  captures the static exchange evaluation says lose material, held back until last */
+    private int [] m_badCaptures = new int[MoveList.C_MAX_MOVES];
+    private int m_badCaptureCount;
+    private int m_badCaptureIndex;
+
+    /*  the quiet moves searched so far, which lose history if another one cuts off */
+    private int [] m_quietsTried = new int[MoveList.C_MAX_MOVES];
+    private int m_quietsTriedCount;
+
+    /*  desc:   starts picking the moves of the state's current position.
+     *  args:   history (int[]) - the side to move's history table, indexed by from | to << 6.
+     *  ret:    n/a.
+     */
+    public void init(final ChessState state, final int pvMove, final int hashMove,
+            final int killer1, final int killer2, final int [] history) {
+        m_state = state;
+        m_pvMove = pvMove;
+        m_hashMove = (hashMove == pvMove ? Move.C_NONE : hashMove);
+        m_killer1 = killer1;
+        m_killer2 = killer2;
+        m_history = history;
+        m_stage = C_STAGE_PV;
+        m_quietsTriedCount = 0;
+        m_badCaptureCount = 0;
+        m_badCaptureIndex = 0;
+    }
+
+    /*  desc:   gets the next move to search.
+     *  ret:    a packed legal move, or Move.C_NONE when every move has been handed out.
+     */
+    public int next() {
+        while (true) {
+            switch (m_stage) {
+                case C_STAGE_PV:
+                    m_stage++;
+                    if (m_state.isLegal(m_pvMove)) {
+                        return m_pvMove;
+                    }
+                    break;
+
+                case C_STAGE_HASH:
+                    m_stage++;
+                    if (m_state.isLegal(m_hashMove)) {
+                        return m_hashMove;
+                    }
+                    break;
+
+                case C_STAGE_GENERATE_CAPTURES:
+                    m_state.generateMoves(m_moves, ChessState.C_GEN_CAPTURES);
+                    for (int i = 0; i < m_moves.size(); i++) {
+                        m_moves.set(i, m_moves.get(i), m_state.mvvLva(m_moves.get(i)));
+                    }
+                    m_index = 0;
+                    m_stage++;
+                    break;
+
+                case C_STAGE_CAPTURES: {
+                    int move = pickBest();
+                    if (move == Move.C_NONE) {
+                        m_stage++;
+                    } else if (isLosingCapture(move)) {
+                        m_badCaptures[m_badCaptureCount++] = move;
+                    } else {
+                        return move;
+                    }
+                    break;
+                }
+
+                case C_STAGE_KILLER_1:
+                    m_stage++;
+                    if (isNewQuiet(m_killer1) && m_state.isLegal(m_killer1)) {
+                        return m_killer1;
+                    }
+                    break;
+
+                case C_STAGE_KILLER_2:
+                    m_stage++;
+                    if (m_killer2 != m_killer1 && isNewQuiet(m_killer2) && m_state.isLegal(m_killer2)) {
+                        return m_killer2;
+                    }
+                    break;
+
+                case C_STAGE_GENERATE_QUIETS:
+                    m_state.generateMoves(m_moves, ChessState.C_GEN_QUIETS);
+                    for (int i = 0; i < m_moves.size(); i++) {
+                        int move = m_moves.get(i);
+                        m_moves.set(i, move, m_moves.getValue(i) + m_history[move & 0xFFF]);
+                    }
+                    m_index = 0;
+                    m_stage++;
+                    break;
+
+                case C_STAGE_QUIETS: {
+                    int move = pickBest();
+                    if (move != Move.C_NONE) {
+                        return move;
+                    }
+                    m_stage++;
+                    break;
+                }
+
+                case C_STAGE_BAD_CAPTURES:
+                    if (m_badCaptureIndex < m_badCaptureCount) {
+                        return m_badCaptures[m_badCaptureIndex++];
+                    }
+                    m_stage++;
+                    break;
+
+                default:
+                    return Move.C_NONE;
+            }
+        }
+    }
+
+    /*  desc:   gets the number of quiet moves searched so far.
+     *  ret:    the count, with the moves in quietsTried().
+     */
+    public int quietsTriedCount() {
+        return m_quietsTriedCount;
+    }
+
+    public int [] quietsTried() {
+        return m_quietsTried;
+    }
+
+    /*  desc:   finds the highest valued move left in the current stage and swaps it to
+     *          the front, skipping moves an earlier stage already handed out. Picking one
+     *          move at a time is cheaper than sorting when an early move cuts off.
+     *  ret:    the move, or Move.C_NONE when the stage is used up.
+     */
+    private int pickBest() {
+        while (m_index < m_moves.size()) {
+            int best = m_index;
+            for (int i = m_index + 1; i < m_moves.size(); i++) {
+                if (m_moves.getValue(i) > m_moves.getValue(best)) {
+                    best = i;
+                }
+            }
+
+            int move = m_moves.get(best);
+            int value = m_moves.getValue(best);
+            m_moves.set(best, m_moves.get(m_index), m_moves.getValue(m_index));
+            m_moves.set(m_index, move, value);
+            m_index++;
+
+            if (move != m_pvMove && move != m_hashMove
+                && (m_stage != C_STAGE_QUIETS || (move != m_killer1 && move != m_killer2))) {
+                return move;
+            }
+        }
+        return Move.C_NONE;
+    }
+
+    /*  desc:   checks whether a capture loses material once every recapture is played out.
+     *          Taking a piece worth at least the capturer can never lose, so the exchange
+     *          is only evaluated for the rest.
+     *  ret:    true if the capture loses material.
+     */
+    private boolean isLosingCapture(final int move) {
+        if (!Move.isPromotion(move)
+            && m_state.captureValue(move) >= ChessState.C_PIECE_VALUES[m_state.pieceOn(Move.from(move)) % 6]) {
+            return false;
+        }
+        return m_state.see(move) < 0;
+    }
+
+    private boolean isNewQuiet(final int move) {
+        return move != Move.C_NONE && move != m_pvMove && move != m_hashMove
+            && !Move.isCapture(move) && !Move.isPromotion(move);
+    }
+
+    /*  desc:   remembers a move as searched, once the node has made and searched it. Moves
+     *          handed out but pruned are not, so a later cutoff does not penalise them.
+     *  ret:    n/a.
+     */
+    public void searched(final int move) {
+        if (!Move.isCapture(move) && !Move.isPromotion(move)) {
+            m_quietsTried[m_quietsTriedCount++] = move;
+        }
+    }
+}
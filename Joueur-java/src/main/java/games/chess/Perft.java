@@ -0,0 +1,202 @@
+/**
+ * @author  Jonah Yates
+ * @file    Perft.java
+ * @brief   counts the leaf nodes of the move generator to a fixed depth, so
+ *          generator changes can be checked for correctness and speed without
+ *          a game server. Run with ./perft -h for its options.
+ */
+
+package games.chess;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.impl.Arguments;
+import net.sourceforge.argparse4j.inf.ArgumentParser;
+import net.sourceforge.argparse4j.inf.ArgumentParserException;
+import net.sourceforge.argparse4j.inf.Namespace;
+
+public class Perft {
+
+    final static String C_START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    /*  reference positions with their known node counts: the start position, kiwipete
+        and positions 3 to 6 from the chessprogramming wiki. Between them they cover
+        castling, en passant, promotions, pins and discovered checks.   */
+    final static String [] C_REFERENCE_FENS = {
+        C_START_FEN,
+        "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+        "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+        "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+        "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+        "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10"
+    };
+    final static int [] C_REFERENCE_DEPTHS = { 5, 4, 6, 5, 4, 4 };
+    final static long [] C_REFERENCE_NODES = { 4865609L, 4085603L, 11030083L, 15833292L, 2103487L, 3894594L };
+
+    /*  desc:   counts the leaf nodes depth plies below the state. With bulk counting the
+     *          last ply is not made, its legal moves are just counted.
+     *  args:   lists - one scratch MoveList per remaining depth, verifyKeys - whether to check
+     *          the incremental Zobrist key against a from-scratch one at every node.
+     *  ret:    the number of leaf nodes.
+     */
+    static long perft(final ChessState state, final int depth, final boolean bulk, final boolean verifyKeys,
+            final MoveList [] lists) {
+        if (verifyKeys && state.getKey() != state.computeKey()) {
+            throw new IllegalStateException("incremental Zobrist key does not match the position");
+        }
+        if (depth == 0) {
+            return 1;
+        }
+
+        MoveList moves = lists[depth];
+        state.computeMoves(moves);
+        if (bulk && depth == 1) {
+            return moves.size();
+        }
+
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            state.makeMove(move);
+            nodes += perft(state, depth-1, bulk, verifyKeys, lists);
+            state.unmakeMove(move);
+        }
+        return nodes;
+    }
+
+    /*  desc:   counts the leaf nodes below each root move, splitting the root moves
+     *          across a pool of threads that each search their own copy of the state.
+     *  ret:    the node count of each root move, in the order of rootMoves.
+     */
+    static long [] divide(final ChessState state, final MoveList rootMoves, final int depth, final boolean bulk,
+            final boolean verifyKeys, final int threads) throws InterruptedException, ExecutionException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Long>> counts = new ArrayList<Future<Long>>();
+        for (int i = 0; i < rootMoves.size(); i++) {
+            final int move = rootMoves.get(i);
+            counts.add(pool.submit(new Callable<Long>() {
+                public Long call() {
+                    ChessState child = new ChessState(state);
+                    child.makeMove(move);
+                    return perft(child, depth-1, bulk, verifyKeys, newLists(depth));
+                }
+            }));
+        }
+
+        long [] nodes = new long[rootMoves.size()];
+        try {
+            for (int i = 0; i < nodes.length; i++) {
+                nodes[i] = counts.get(i).get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return nodes;
+    }
+
+    /*  desc:   runs perft on a position and prints its divide, total nodes, time and speed.
+     *  ret:    the total number of leaf nodes.
+     */
+    static long run(final String fen, final int depth, final boolean bulk, final boolean verifyKeys, final int threads,
+            final boolean printDivide)
+            throws InterruptedException, ExecutionException {
+        ChessState state = ChessState.fromFen(fen);
+        long start = System.nanoTime();
+
+        long total = 0;
+        if (depth > 0) {
+            MoveList rootMoves = new MoveList();
+            state.computeMoves(rootMoves);
+            long [] nodes = divide(state, rootMoves, depth, bulk, verifyKeys, threads);
+
+            List<String> lines = new ArrayList<String>();
+            for (int i = 0; i < nodes.length; i++) {
+                lines.add(Move.toUci(rootMoves.get(i)) + ": " + nodes[i]);
+                total += nodes[i];
+            }
+            if (printDivide) {
+                Collections.sort(lines);
+                for (String line : lines) {
+                    System.out.println(line);
+                }
+            }
+        } else {
+            total = 1;
+        }
+
+        long elapsed = System.nanoTime() - start;
+        System.out.println("nodes: " + total + "  time: " + (elapsed / 1000000) + "ms  nps: "
+            + (elapsed == 0 ? 0 : total * 1000000000L / elapsed));
+        return total;
+    }
+
+    static MoveList [] newLists(final int depth) {
+        MoveList [] lists = new MoveList[depth+1];
+        for (int i = 0; i <= depth; i++) {
+            lists[i] = new MoveList();
+        }
+        return lists;
+    }
+
+    public static void main(String [] args) throws InterruptedException, ExecutionException {
+        ArgumentParser parser = ArgumentParsers.newArgumentParser("perft")
+                .description("Counts the leaf nodes of the chess move generator to a fixed depth.");
+        parser.addArgument("depth").dest("depth").type(Integer.class).nargs("?").setDefault(5)
+                .help("the number of plies to search");
+        parser.addArgument("-f", "--fen").dest("fen").setDefault(C_START_FEN)
+                .help("the position to search, as a FEN string");
+        parser.addArgument("-d", "--divide").dest("divide").action(Arguments.storeTrue())
+                .help("print the node count below each root move");
+        parser.addArgument("-b", "--bulk").dest("bulk").action(Arguments.storeTrue())
+                .help("count the legal moves at the last ply instead of making them");
+        parser.addArgument("-k", "--verify-keys").dest("verifyKeys").action(Arguments.storeTrue())
+                .help("check the incremental Zobrist key against one computed from scratch at every node");
+        parser.addArgument("-t", "--threads").dest("threads").type(Integer.class)
+                .setDefault(Runtime.getRuntime().availableProcessors())
+                .help("the number of threads the root moves are split across");
+        parser.addArgument("-r", "--reference").dest("reference").action(Arguments.storeTrue())
+                .help("check the reference positions against their known node counts");
+
+        Namespace parsedArgs = null;
+        try {
+            parsedArgs = parser.parseArgs(args);
+        } catch (ArgumentParserException e) {
+            parser.handleError(e);
+            System.exit(1);
+        }
+
+        boolean bulk = parsedArgs.getBoolean("bulk");
+        boolean verifyKeys = parsedArgs.getBoolean("verifyKeys");
+        int threads = Math.max(1, parsedArgs.getInt("threads"));
+
+        if (!parsedArgs.getBoolean("reference")) {
+            run(parsedArgs.getString("fen"), parsedArgs.getInt("depth"), bulk, verifyKeys, threads,
+                parsedArgs.getBoolean("divide"));
+            return;
+        }
+
+        // any mismatch against a reference count exits with an error so scripts notice
+        int failures = 0;
+        for (int i = 0; i < C_REFERENCE_FENS.length; i++) {
+            System.out.println(C_REFERENCE_FENS[i] + "  depth " + C_REFERENCE_DEPTHS[i]);
+            long nodes = run(C_REFERENCE_FENS[i], C_REFERENCE_DEPTHS[i], bulk, verifyKeys, threads, false);
+            if (nodes != C_REFERENCE_NODES[i]) {
+                System.out.println("FAILED: expected " + C_REFERENCE_NODES[i] + " nodes, got " + nodes);
+                failures++;
+            }
+        }
+        if (failures > 0) {
+            System.out.println(failures + " of " + C_REFERENCE_FENS.length + " reference positions FAILED");
+            System.exit(1);
+        }
+        System.out.println("all " + C_REFERENCE_FENS.length + " reference positions passed");
+    }
+}
@@ -0,0 +1,48 @@
+/**
+ * @author  Jonah Yates
+ * @file    SplitPoint.java
+ * @brief   a node whose younger brothers are being searched in parallel. A brother that
+ *          fails high cancels the split point, which stops every search below it,
+ *          including those under split points further down.
+ */
+
+package games.chess;
+
+public class SplitPoint {
+
+    private final ChessState m_owner;
+    private volatile boolean m_cancelled = false;
+
+    /*  desc:   creates a split point at the current node of the owner's search.
+     */
+    public SplitPoint(final ChessState owner) {
+        m_owner = owner;
+    }
+
+    public void cancel() {
+        m_cancelled = true;
+    }
+
+    /*  desc:   informs whether a brother failed high here.
+     *  ret:    true if cancelled by a cutoff at this split point itself.
+     */
+    public boolean isCutOff() {
+        return m_cancelled;
+    }
+
+    /*  desc:   informs whether searches below this split point should unwind, because of a
+     *          cutoff here or because the search that owns it was stopped or cancelled.
+     *  ret:    true once cancelled.
+     */
+    public boolean isCancelled() {
+        return m_cancelled || m_owner.isCancelled();
+    }
+
+    /*  desc:   gets the deadline of the search that owns this split point, which a ponder hit
+     *          may move while searches below it are running.
+     *  ret:    the deadline, in System.nanoTime terms.
+     */
+    public long hardDeadline() {
+        return m_owner.hardDeadline();
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * @author  Jonah Yates
+ * @file    TimeManager.java
+ * @brief   decides how long a search may run from the player's remaining time and
+ *          the move number. It gives a soft limit, past which no new iteration starts,
+ *          and a hard limit at which the search unwinds. The soft limit shrinks while
+ *          the best move stays the same and grows when the score drops. A pondering
+ *          search has no limits until the opponent plays the predicted move.
+ */
+
+package games.chess;
+
+public class TimeManager {
+
+    /*  the game is assumed to last this many moves, but always at least
+        C_MIN_MOVES_TO_GO more, so there is time left for the endgame    */
+    final static int C_EXPECTED_GAME_LENGTH = 60;
+    final static int C_MIN_MOVES_TO_GO = 20;
+
+    /*  kept back for the server round trip, in nanoseconds */
+    final static double C_OVERHEAD = 50e6;
+
+    /*  the hard limit is this many soft limits, but never more than
+        C_MAX_FRACTION of the remaining time  */
+    final static double C_HARD_FACTOR = 4;
+    final static double C_MAX_FRACTION = .1;
+
+    /*  the soft limit is scaled down by C_STABILITY_STEP for each iteration the best
+        move has not changed, down to C_MIN_STABILITY_SCALE, and up after a change */
+    final static double C_CHANGED_SCALE = 1.3;
+    final static double C_STABILITY_STEP = .15;
+    final static double C_MIN_STABILITY_SCALE = .5;
+
+    /*  a score drop of C_FULL_DROP centipawns or more doubles the soft limit */
+    final static int C_FULL_DROP = 100;
+
+    /*  set from the client thread on a ponder hit while the search reads them */
+    private volatile long m_start;
+    private volatile double m_soft;
+    private volatile double m_hard;
+    private double m_scale = 1;
+
+    private int m_lastBestMove = Move.C_NONE;
+    private int m_lastScore;
+    private int m_stableIterations = 0;
+
+    /*  desc:   sets the limits for a search starting now.
+     *  args:   timeRemaining (double) - the player's clock in nanoseconds,
+     *          moveNumber (int) - the full move number of the position.
+     */
+    public TimeManager(final double timeRemaining, final int moveNumber) {
+        start(timeRemaining, moveNumber);
+    }
+
+    /*  desc:   creates the time manager of a pondering search, which runs without limits
+     *          until start is called.
+     */
+    public TimeManager() {
+        m_start = System.nanoTime();
+        m_soft = Double.POSITIVE_INFINITY;
+        m_hard = Double.POSITIVE_INFINITY;
+    }
+
+    /*  desc:   sets the limits for a search, counted from now.
+     *  args:   timeRemaining (double) - the player's clock in nanoseconds,
+     *          moveNumber (int) - the full move number of the position.
+     *  ret:    n/a.
+     */
+    public void start(final double timeRemaining, final int moveNumber) {
+        m_start = System.nanoTime();
+
+        double usable = Math.max(0, timeRemaining - C_OVERHEAD);
+        int movesToGo = Math.max(C_MIN_MOVES_TO_GO, C_EXPECTED_GAME_LENGTH - moveNumber);
+
+        m_hard = Math.min(usable / movesToGo * C_HARD_FACTOR, usable * C_MAX_FRACTION);
+        m_soft = Math.min(usable / movesToGo, m_hard);
+    }
+
+    /*  desc:   updates the soft limit after an iteration completes, from whether the
+     *          best move changed and how far the score fell.
+     *  ret:    n/a.
+     */
+    public void iterationDone(final int bestMove, final int score) {
+        if (m_lastBestMove == Move.C_NONE) {
+            m_scale = 1;
+        } else {
+            if (bestMove == m_lastBestMove) {
+                m_stableIterations++;
+            } else {
+                m_stableIterations = 0;
+            }
+            m_scale = Math.max(C_MIN_STABILITY_SCALE, C_CHANGED_SCALE - C_STABILITY_STEP * m_stableIterations);
+
+            // spending more time when the last iteration failed low against the one before
+            int drop = m_lastScore - score;
+            if (drop > 0) {
+                m_scale *= 1 + (double)Math.min(drop, C_FULL_DROP) / C_FULL_DROP;
+            }
+        }
+
+        m_lastBestMove = bestMove;
+        m_lastScore = score;
+    }
+
+    /*  desc:   informs whether another iteration may start.
+     *  ret:    false once the scaled soft limit has passed.
+     */
+    public boolean canStartIteration() {
+        return elapsed() < Math.min(m_soft * m_scale, m_hard);
+    }
+
+    /*  desc:   gets the time at which the search has to unwind, in System.nanoTime terms.
+     *  ret:    the hard deadline.
+     */
+    public long hardDeadline() {
+        return (Double.isInfinite(m_hard) ? Long.MAX_VALUE : m_start + (long)m_hard);
+    }
+
+    public long elapsed() {
+        return System.nanoTime() - m_start;
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * @author  Jonah Yates
+ * @file    TranspositionTable.java
+ * @brief   a fixed size table of search results indexed by Zobrist key. Entries are
+ *          packed into two parallel long arrays, the full key and its data, and
+ *          grouped in buckets of two: a depth-preferred slot and an always-replace slot.
+ *          Search threads share one table without locks. Each slot keeps its key xored
+ *          with its data, so a slot torn by two threads writing it at once no longer
+ *          matches either key and is read as a miss.
+ */
+
+package games.chess;
+
+import java.util.Arrays;
+
+public class TranspositionTable {
+
+    /*  bound types. An exact score lies inside the search window, a lower bound
+        failed high (the real score is at least it) and an upper bound failed low. */
+    final static int C_EXACT = 1;
+    final static int C_LOWER = 2;
+    final static int C_UPPER = 3;
+
+    final static int C_DEFAULT_MB = 16;
+
+    /*  each entry is a key and a data long */
+    final static int C_ENTRY_BYTES = 16;
+
+    /*  data layout: bits 0-31 the score, bits 32-47 the best move,
+        bits 48-55 the depth, bits 56-57 the bound and bits 58-63 the age  */
+    final static int C_MOVE_SHIFT = 32;
+    final static int C_DEPTH_SHIFT = 48;
+    final static int C_BOUND_SHIFT = 56;
+    final static int C_AGE_SHIFT = 58;
+
+    private long [] m_keys;
+    private long [] m_data;
+    private int m_bucketMask;
+    private int m_age = 0;
+
+    /*  desc:   allocates a table of about sizeMB megabytes, rounded down so the
+     *          number of buckets is a power of two.
+     */
+    public TranspositionTable(final int sizeMB) {
+        long entries = Math.max(2, (long)sizeMB * 1024 * 1024 / C_ENTRY_BYTES);
+        int buckets = Integer.highestOneBit((int)Math.min(entries / 2, 1 << 29));
+
+        m_keys = new long[buckets * 2];
+        m_data = new long[buckets * 2];
+        m_bucketMask = buckets - 1;
+    }
+
+    /*  desc:   marks the start of a new search, so entries left from earlier searches
+     *          give up their depth-preferred slots to fresh ones.
+     *  ret:    n/a.
+     */
+    public void newSearch() {
+        m_age = (m_age + 1) & 63;
+    }
+
+    public void clear() {
+        Arrays.fill(m_keys, 0);
+        Arrays.fill(m_data, 0);
+    }
+
+    /*  desc:   looks up a position.
+     *  ret:    the packed data stored for the key, or 0 when it is not in the table.
+     */
+    public long probe(final long key) {
+        int index = (int)key & m_bucketMask;
+        index <<= 1;
+
+        // each slot's data is read once, so the check and the result agree
+        for (int slot = index; slot <= index+1; slot++) {
+            long data = m_data[slot];
+            if (data != 0 && (m_keys[slot] ^ data) == key) {
+                return data;
+            }
+        }
+        return 0;
+    }
+
+    /*  desc:   stores a search result. It replaces the depth-preferred slot when that holds
+     *          the same position, a shallower search or one from an earlier move, and
+     *          otherwise goes into the always-replace slot.
+     *  ret:    n/a.
+     */
+    public void store(final long key, final int move, final int depth, final int bound, final int score) {
+        int index = (int)key & m_bucketMask;
+        index <<= 1;
+
+        long old = m_data[index];
+        if ((m_keys[index] ^ old) != key && old != 0 && age(old) == m_age && depth(old) > depth) {
+            index++;
+            old = m_data[index];
+        }
+
+        // keeping the old best move when a result without one replaces the same position
+        int bestMove = move;
+        if (bestMove == Move.C_NONE && (m_keys[index] ^ old) == key) {
+            bestMove = move(old);
+        }
+
+        long data = (score & 0xFFFFFFFFL)
+            | ((long)bestMove << C_MOVE_SHIFT)
+            | ((long)Math.max(0, Math.min(depth, 255)) << C_DEPTH_SHIFT)
+            | ((long)bound << C_BOUND_SHIFT)
+            | ((long)m_age << C_AGE_SHIFT);
+        m_keys[index] = key ^ data;
+        m_data[index] = data;
+    }
+
+    static int score(final long data) {
+        return (int)data;
+    }
+
+    static int move(final long data) {
+        return (int)(data >>> C_MOVE_SHIFT) & 0xFFFF;
+    }
+
+    static int depth(final long data) {
+        return (int)(data >>> C_DEPTH_SHIFT) & 0xFF;
+    }
+
+    static int bound(final long data) {
+        return (int)(data >>> C_BOUND_SHIFT) & 3;
+    }
+
+    static int age(final long data) {
+        return (int)(data >>> C_AGE_SHIFT) & 63;
+    }
+}
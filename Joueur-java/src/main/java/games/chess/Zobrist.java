@@ -0,0 +1,49 @@
+/**
+ * @author  Jonah Yates
+ * @file    Zobrist.java
+ * @brief   random keys that are xor'd together into a 64 bit hash of a ChessState:
+ *          one per piece on each square, one for black to move, one for each set of
+ *          castling rights and one for each en passant file.
+ */
+
+package games.chess;
+
+public final class Zobrist {
+
+    final static long [][] C_PIECE_SQUARE = new long[12][64];
+    final static long [] C_CASTLING = new long[16];
+    final static long [] C_EN_PASSANT_FILE = new long[8];
+    final static long C_BLACK_TO_MOVE;
+
+    /*  a fixed seed so keys, and anything saved by them, are the same on every run */
+    final static long C_SEED = 0x4A6F6E6168596174L;
+
+    private static long s_state = C_SEED;
+
+    static {
+        for (int piece = 0; piece < 12; piece++) {
+            for (int sq = 0; sq < 64; sq++) {
+                C_PIECE_SQUARE[piece][sq] = nextRandom();
+            }
+        }
+        for (int rights = 0; rights < 16; rights++) {
+            C_CASTLING[rights] = nextRandom();
+        }
+        for (int file = 0; file < 8; file++) {
+            C_EN_PASSANT_FILE[file] = nextRandom();
+        }
+        C_BLACK_TO_MOVE = nextRandom();
+    }
+
+    private Zobrist() {}
+
+    /*  desc:   steps a splitmix64 generator, which gives well mixed 64 bit values from any seed.
+     *  ret:    the next random long.
+     */
+    private static long nextRandom() {
+        long z = (s_state += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -2,11 +2,17 @@ package joueur;
 
 import java.lang.reflect.Method;
 import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.json.JSONArray;
 
 public abstract class BaseAI {
     private HashMap<String, String> _settings;
+    private ExecutorService _orderExecutor; // runs orders off the client's socket thread
 
     protected BaseAI() {
         this._settings = new HashMap<String, String>();
@@ -70,6 +76,45 @@ public abstract class BaseAI {
         return null; // should not be reached
     }
 
+    // runs an order on the AI's own thread, so the client can keep handling the socket while it works, then runs whenDone
+    public Future<Object> doOrderAsync(final String order, final JSONArray jsonArray, final Runnable whenDone) {
+        if (this._orderExecutor == null) {
+            this._orderExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "ai-orders");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        return this._orderExecutor.submit(new Callable<Object>() {
+            public Object call() {
+                try {
+                    return BaseAI.this.doOrder(order, jsonArray);
+                } finally {
+                    whenDone.run();
+                }
+            }
+        });
+    }
+
+    /**
+    * Called from the client's thread when the order being worked on should finish as soon as possible, such as when the game ends or the order runs past orderTimeLimit().
+    */
+    public void cancelOrder() {
+        // the inheriting AI can add code to this inherited function
+    }
+
+    /**
+    * Gets how long an order may run, in nanoseconds, before the client asks the AI to cancel it.
+    *
+    * @return The time limit, or infinity for none
+    */
+    public double orderTimeLimit() {
+        return Double.POSITIVE_INFINITY;
+    }
+
     public void setSettings(String aiSettings) {
         if (aiSettings != null && !aiSettings.equals("")) {
             String[] split = aiSettings.split("&");
@@ -8,7 +8,17 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Stack;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import org.json.*;
 
 public class Client {
@@ -35,6 +45,13 @@ public class Client {
     private boolean started = false;
     private static final String EOT_CHAR = "" + (char) 4;
     private static final int BUFFER_SIZE = 1024;
+    private static final long ORDER_POLL_MILLIS = 50; // how often the socket is checked while the AI works on an order
+    private static final Runnable ORDER_FINISHED = new Runnable() { // wakes the client's thread when an order finishes
+        public void run() {
+        }
+    };
+    private volatile Thread orderWaiter = null; // the client's thread while an order runs, the only one to use the socket and events
+    private final BlockingQueue<Runnable> handedOff = new LinkedBlockingQueue<Runnable>(); // work the AI's thread hands to the orderWaiter
     private BaseAI ai = null;
     private BaseGameObject aisPlayer = null;
     public GameManager gameManager;
@@ -179,27 +196,62 @@ public class Client {
                 continue;
             }
 
-            if (this.printIO) {
-                System.out.println(
-                        ANSIColorCoder.FG_MAGENTA.apply() + "FROM SERVER -->" + responseData + ANSIColorCoder.reset());
+            List<ServerEvent> serverEvents = this.parseEvents(responseData);
+            for (int i = serverEvents.size() - 1; i >= 0; i--) { // iterate through in reverse, so they are popped in the order they were sent
+                this.eventsStack.push(serverEvents.get(i));
             }
 
-            String total = this.receivedBuffer + responseData;
-            String[] split = total.split("[" + Client.EOT_CHAR + "]", -1);
+            if (!this.eventsStack.isEmpty()) {
+                return;
+            }
+        }
+    }
 
-            this.receivedBuffer = split[split.length - 1]; // this is either an empty string because of the EOT_CHAR split, or an incomplete json string so store it in the buffer
+    private List<ServerEvent> parseEvents(String responseData) {
+        if (this.printIO) {
+            System.out.println(
+                    ANSIColorCoder.FG_MAGENTA.apply() + "FROM SERVER -->" + responseData + ANSIColorCoder.reset());
+        }
 
-            for (int i = split.length - 2; i >= 0; i--) { // iterate through in reverse, skipping the over the very last item because we stored it in the receivedBuffer
-                String str = split[i];
-                JSONObject deserialized = new JSONObject(str);
-                ServerEvent serverEvent = new ServerEvent(deserialized.getString("event"), deserialized.opt("data"));
-                this.eventsStack.push(serverEvent);
-            }
+        String total = this.receivedBuffer + responseData;
+        String[] split = total.split("[" + Client.EOT_CHAR + "]", -1);
 
-            if (!this.eventsStack.isEmpty()) {
+        this.receivedBuffer = split[split.length - 1]; // this is either an empty string because of the EOT_CHAR split, or an incomplete json string so store it in the buffer
+
+        List<ServerEvent> serverEvents = new ArrayList<ServerEvent>();
+        for (int i = 0; i < split.length - 1; i++) { // skipping the very last item because we stored it in the receivedBuffer
+            JSONObject deserialized = new JSONObject(split[i]);
+            serverEvents.add(new ServerEvent(deserialized.getString("event"), deserialized.opt("data")));
+        }
+        return serverEvents;
+    }
+
+    // reads whatever the server has sent without blocking, queueing it behind the events already waiting
+    private void readAvailableEvents() {
+        try {
+            if (!this.socketIn.ready()) {
                 return;
             }
+
+            char[] chars = new char[Client.BUFFER_SIZE];
+            int charsRead = this.socketIn.read(chars);
+            if (charsRead > 0) {
+                for (ServerEvent serverEvent : this.parseEvents(new String(chars, 0, charsRead))) {
+                    this.eventsStack.add(0, serverEvent); // the bottom of the stack is popped last
+                }
+            }
+        } catch (IOException e) {
+            this.handleError(e, ErrorCode.CANNOT_READ_SOCKET, "Error with reading socket: " + e.getMessage());
+        }
+    }
+
+    private boolean hasEvent(String eventName) {
+        for (ServerEvent serverEvent : this.eventsStack) {
+            if (serverEvent.event.equals(eventName)) {
+                return true;
+            }
         }
+        return false;
     }
 
     private void autoHandle(String eventName, Object data) {
@@ -302,7 +354,17 @@ public class Client {
             this.handleError(e, ErrorCode.REFLECTION_FAILED, "Order data malformed, missing name or index: ");
         }
 
-        Object returned = ai.doOrder(order, orderData.optJSONArray("args"));
+        // the AI works on the order on its own thread while this one keeps reading the socket
+        this.orderWaiter = Thread.currentThread();
+        Future<Object> pending = ai.doOrderAsync(order, orderData.optJSONArray("args"), new Runnable() {
+            public void run() {
+                Client.this.handedOff.offer(Client.ORDER_FINISHED);
+            }
+        });
+        Object returned = this.awaitOrder(pending);
+        if (this.hasEvent("fatal") || this.hasEvent("over")) {
+            return; // the game ended during the order, so there is nothing to send it to
+        }
 
         JSONObject finishedData = new JSONObject();
         finishedData.put("orderIndex", index);
@@ -310,7 +372,60 @@ public class Client {
         this.send("finished", finishedData);
     }
 
-    public Object runOnServer(BaseGameObject caller, String functionName, JSONObject args) {
+    // waits for the AI to finish an order, doing the socket work it hands off, and asking it to cancel if the game ends first or it runs past its time limit
+    private Object awaitOrder(Future<Object> pending) {
+        double timeLimit = ai.orderTimeLimit();
+        long deadline = System.nanoTime() + (long) Math.min(timeLimit, Long.MAX_VALUE / 2);
+
+        try {
+            while (!pending.isDone()) {
+                Runnable work = this.handedOff.poll(Client.ORDER_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (work != null) {
+                    work.run();
+                }
+
+                this.readAvailableEvents();
+                if (this.hasEvent("fatal") || this.hasEvent("over") || System.nanoTime() >= deadline) {
+                    ai.cancelOrder(); // asked again on every poll, in case the AI had not started its work yet
+                }
+            }
+            return pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            ai.cancelOrder();
+            return null;
+        } catch (CancellationException e) {
+            return null;
+        } catch (ExecutionException e) {
+            this.handleError(e, ErrorCode.AI_ERRORED, "AI errored while executing an order.");
+            return null;
+        } finally {
+            this.orderWaiter = null;
+        }
+    }
+
+    public Object runOnServer(final BaseGameObject caller, final String functionName, final JSONObject args) {
+        // while an order runs only the client's thread may use the socket, so calls from the AI's thread are handed to it
+        Thread orderWaiter = this.orderWaiter;
+        if (orderWaiter != null && Thread.currentThread() != orderWaiter) {
+            FutureTask<Object> run = new FutureTask<Object>(new Callable<Object>() {
+                public Object call() {
+                    return Client.this.runOnServer(caller, functionName, args);
+                }
+            });
+            this.handedOff.offer(run);
+
+            try {
+                return run.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException e) {
+                this.handleError(e, ErrorCode.AI_ERRORED, "Could not run " + functionName + " on the server.");
+                return null;
+            }
+        }
+
         JSONObject runData = new JSONObject();
         runData.put("caller", this.gameManager.serializeGameObject(caller));
         runData.put("functionName", functionName);